@@ -0,0 +1,80 @@
+package redis.clients.johm;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Backend is the extension point through which JOhm sends every command to
+ * Redis, installed with JOhm.setBackend(); JOhm.setPool() installs a
+ * JedisBackend. It covers the commands Nest and the collections issue one at a
+ * time, and the batches of commands JOhm sends together.
+ *
+ * Keys are passed as their UTF-8 bytes, so that a Nest issuing many commands
+ * against one key encodes it once; members and values are Strings. A Backend
+ * is shared by all threads.
+ */
+public interface Backend {
+    String set(byte[] key, String value);
+
+    String get(byte[] key);
+
+    Long incr(byte[] key);
+
+    Long incrBy(byte[] key, long increment);
+
+    Long del(byte[] key);
+
+    Boolean exists(byte[] key);
+
+    String hmset(byte[] key, Map<String, String> hash);
+
+    Map<String, String> hgetAll(byte[] key);
+
+    String hget(byte[] key, String field);
+
+    Long hdel(byte[] key, String field);
+
+    Long hlen(byte[] key);
+
+    Set<String> hkeys(byte[] key);
+
+    Long sadd(byte[] key, String member);
+
+    Long srem(byte[] key, String member);
+
+    Set<String> smembers(byte[] key);
+
+    Long rpush(byte[] key, String string);
+
+    String lset(byte[] key, int index, String value);
+
+    String lindex(byte[] key, int index);
+
+    Long llen(byte[] key);
+
+    Long lrem(byte[] key, int count, String value);
+
+    List<String> lrange(byte[] key, int start, int end);
+
+    Set<String> zrange(byte[] key, int start, int end);
+
+    Long zadd(byte[] key, double score, String member);
+
+    Long zcard(byte[] key);
+
+    /**
+     * Send the commands the given block queues in one round trip.
+     *
+     * @return the raw reply of each command, in order
+     */
+    List<Object> pipelined(CommandBlock block);
+
+    /**
+     * Send the commands the given block queues as one MULTI/EXEC transaction,
+     * in one round trip.
+     *
+     * @return the raw reply of each command, in order
+     */
+    List<Object> pipelinedMulti(CommandBlock block);
+}
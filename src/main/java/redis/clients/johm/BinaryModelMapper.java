@@ -0,0 +1,20 @@
+package redis.clients.johm;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BinaryModelMapper is a ModelMapper that can also map attributes straight
+ * from the raw reply of an HGETALL, without decoding hash field names and
+ * values to Strings first. JOhm uses it to load Models whenever neither change
+ * tracking nor a ModelCache needs the decoded hash.
+ */
+public interface BinaryModelMapper<T> extends ModelMapper<T> {
+    /**
+     * Set each @Attribute of the model from the alternating field names and
+     * values of a Redis hash, as fromHash() does, and put every other field
+     * of the hash, decoded, into others.
+     */
+    void fromBinaryHash(List<byte[]> flattened, T model,
+            Map<String, String> others);
+}
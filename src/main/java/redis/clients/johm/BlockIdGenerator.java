@@ -0,0 +1,85 @@
+package redis.clients.johm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * BlockIdGenerator is the default IdGenerator. It reserves blocks of ids from
+ * the class's id counter with a single INCRBY and hands them out locally, so
+ * most new Models cost no round trip and writers contend on the counter once
+ * per block rather than once per Model. Ids are unique but, across processes,
+ * neither dense nor in order of creation; ids reserved by a process that stops
+ * are never used.
+ * 
+ * Blocks are reserved from the Backend allocate() is given. Given another
+ * Backend, the generator drops the blocks reserved before and reserves new
+ * ones from that Backend's counters.
+ * 
+ * If the counter is reset, e.g. by FLUSHALL, ids of blocks reserved before
+ * would be handed out again; install a fresh generator after resetting.
+ */
+public final class BlockIdGenerator implements IdGenerator {
+    private final int blockSize;
+    private final Map<Class<?>, Block> blocks = new HashMap<Class<?>, Block>();
+    // the Backend the blocks were reserved from
+    private Backend backend;
+
+    /**
+     * A generator reserving blocks of 100 ids.
+     */
+    public BlockIdGenerator() {
+        this(100);
+    }
+
+    public BlockIdGenerator(final int blockSize) {
+        if (blockSize < 1) {
+            throw new JOhmException("Block size must be positive: "
+                    + blockSize);
+        }
+        this.blockSize = blockSize;
+    }
+
+    public synchronized long[] allocate(final Class<?> clazz, final int count,
+            final Backend backend) {
+        if (!backend.equals(this.backend)) {
+            blocks.clear();
+            this.backend = backend;
+        }
+        Block block = blocks.get(clazz);
+        if (block == null) {
+            block = new Block();
+            blocks.put(clazz, block);
+        }
+        long[] ids = new long[count];
+        int allocated = 0;
+        while (allocated < count && block.next <= block.last) {
+            ids[allocated++] = block.next++;
+        }
+        if (allocated < count) {
+            int reserve = Math.max(blockSize, count - allocated);
+            Nest<Object> nest = new Nest<Object>(clazz).cat("id");
+            nest.setBackend(backend);
+            block.last = nest.incrBy(reserve);
+            block.next = block.last - reserve + 1;
+            while (allocated < count) {
+                ids[allocated++] = block.next++;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * The value of the class's id counter, which no reserved block exceeds.
+     */
+    public long maxId(final Class<?> clazz, final Backend backend) {
+        Nest<Object> nest = new Nest<Object>(clazz).cat("id");
+        nest.setBackend(backend);
+        String counter = nest.get();
+        return counter == null ? 0 : Long.parseLong(counter);
+    }
+
+    private static final class Block {
+        private long next = 1;
+        private long last;
+    }
+}
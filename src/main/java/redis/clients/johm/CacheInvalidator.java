@@ -0,0 +1,339 @@
+package redis.clients.johm;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+
+/**
+ * CacheInvalidator keeps the ModelCaches of several processes consistent
+ * through a Redis pub/sub channel. Once started, every save and delete that
+ * drops Models from its cache publishes their keys on the channel, and every
+ * key published by another process is dropped from its cache.
+ *
+ * Keys are coalesced before they are published: they are collected for the
+ * coalescing window, duplicates removed, and sent in as few messages as
+ * possible, so bulk writes cost a handful of messages rather than one per
+ * Model. Whenever the subscription is (re)established the whole cache is
+ * cleared, since messages may have been missed while it was down.
+ *
+ * Failures to publish or to stay subscribed are logged and retried until the
+ * invalidator is stopped; keys that could not be published are kept pending
+ * and the cache is cleared when the subscription is lost.
+ *
+ * Keys are published on connections borrowed from the pool. The subscription
+ * holds a connection of its own, to the host and port of the pool's
+ * connections, so that it does not keep one of them for as long as the
+ * invalidator runs; that connection does not authenticate.
+ *
+ * <pre>
+ * ModelCache cache = new ModelCache(10000, 60000);
+ * CacheInvalidator invalidator = new CacheInvalidator(cache, jedisPool,
+ *         &quot;johm:invalidations&quot;, 10);
+ * invalidator.start();
+ * JOhm.setModelCache(cache);
+ * </pre>
+ */
+public final class CacheInvalidator {
+    private static final int MAX_KEYS_PER_MESSAGE = 1000;
+    private static final long RETRY_DELAY = 1000;
+    private static final Logger logger = Logger
+            .getLogger(CacheInvalidator.class.getName());
+
+    private final ModelCache cache;
+    private final JedisPool jedisPool;
+    private final String channel;
+    private final long coalesceWindow;
+    // tells this process' own messages apart
+    private final String sender = UUID.randomUUID().toString();
+    private final Set<String> pending = new LinkedHashSet<String>();
+    private final Subscriber subscriber = new Subscriber();
+    private volatile boolean running;
+    private Thread publisherThread;
+    private Thread subscriberThread;
+    private long messagesPublished;
+    private long keysPublished;
+    private long keysReceived;
+
+    /**
+     * @param coalesceWindow
+     *            milliseconds during which keys are collected before they are
+     *            published
+     */
+    public CacheInvalidator(final ModelCache cache, final JedisPool jedisPool,
+            final String channel, final long coalesceWindow) {
+        this.cache = cache;
+        this.jedisPool = jedisPool;
+        this.channel = channel;
+        this.coalesceWindow = coalesceWindow;
+    }
+
+    /**
+     * Subscribe to the channel and start publishing the keys the cache drops
+     * on writes. Returns once subscribed, or throws JOhmException if that
+     * does not happen within the given number of milliseconds. The
+     * subscription runs on a connection of its own, not one of the pool's.
+     */
+    public synchronized void start(final long timeout) {
+        if (running) {
+            return;
+        }
+        running = true;
+        cache.setInvalidator(this);
+        publisherThread = new Thread(new Runnable() {
+            public void run() {
+                publishPending();
+            }
+        }, "johm-invalidation-publisher");
+        publisherThread.setDaemon(true);
+        publisherThread.start();
+        subscriberThread = new Thread(new Runnable() {
+            public void run() {
+                subscribe();
+            }
+        }, "johm-invalidation-subscriber");
+        subscriberThread.setDaemon(true);
+        subscriberThread.start();
+        try {
+            if (!subscriber.subscribed.await(timeout, TimeUnit.MILLISECONDS)) {
+                throw new JOhmException("Could not subscribe to " + channel);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JOhmException(e);
+        }
+    }
+
+    public void start() {
+        start(10000);
+    }
+
+    /**
+     * Publish what is still pending and stop listening to the channel.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        cache.setInvalidator(null);
+        synchronized (pending) {
+            pending.notifyAll();
+        }
+        if (subscriber.isSubscribed()) {
+            subscriber.unsubscribe();
+        }
+        subscriberThread.interrupt();
+        try {
+            publisherThread.join();
+            subscriberThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getMessagesPublished() {
+        synchronized (pending) {
+            return messagesPublished;
+        }
+    }
+
+    public long getKeysPublished() {
+        synchronized (pending) {
+            return keysPublished;
+        }
+    }
+
+    /**
+     * The number of keys other processes published that were dropped from
+     * the cache.
+     */
+    public long getKeysReceived() {
+        synchronized (pending) {
+            return keysReceived;
+        }
+    }
+
+    /**
+     * Queue the key of a Model written by this process for publishing.
+     */
+    void queue(final String key) {
+        synchronized (pending) {
+            if (pending.add(key) && pending.size() == 1) {
+                pending.notifyAll();
+            }
+        }
+    }
+
+    private void publishPending() {
+        while (true) {
+            List<String> keys;
+            synchronized (pending) {
+                try {
+                    while (running && pending.isEmpty()) {
+                        pending.wait();
+                    }
+                    long deadline = System.currentTimeMillis()
+                            + coalesceWindow;
+                    long remaining = coalesceWindow;
+                    while (running && remaining > 0) {
+                        pending.wait(remaining);
+                        remaining = deadline - System.currentTimeMillis();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                keys = new ArrayList<String>(pending);
+                pending.clear();
+            }
+            try {
+                publish(keys);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Could not publish invalidations on "
+                        + channel + ", retrying", e);
+                synchronized (pending) {
+                    pending.addAll(keys);
+                }
+                if (!running || !sleep(RETRY_DELAY)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void publish(final List<String> keys) {
+        Jedis jedis = jedisPool.getResource();
+        try {
+            for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_MESSAGE) {
+                StringBuilder message = new StringBuilder(sender);
+                int to = Math.min(from + MAX_KEYS_PER_MESSAGE, keys.size());
+                for (String key : keys.subList(from, to)) {
+                    message.append(' ').append(key);
+                }
+                jedis.publish(channel, message.toString());
+                synchronized (pending) {
+                    messagesPublished++;
+                    keysPublished += to - from;
+                }
+            }
+            jedisPool.returnResource(jedis);
+        } catch (RuntimeException e) {
+            jedisPool.returnBrokenResource(jedis);
+            throw e;
+        }
+    }
+
+    private void subscribe() {
+        while (running) {
+            Jedis jedis = null;
+            try {
+                jedis = connect();
+                jedis.subscribe(subscriber, channel);
+                disconnect(jedis);
+            } catch (RuntimeException e) {
+                disconnect(jedis);
+                if (running) {
+                    logger.log(Level.WARNING, "Lost the subscription to "
+                            + channel + ", resubscribing", e);
+                }
+                // invalidations are missed until resubscribed
+                cache.clear();
+                if (!running || !sleep(RETRY_DELAY)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * A new connection to the host and port of the pool's connections.
+     */
+    private Jedis connect() {
+        Jedis pooled = jedisPool.getResource();
+        Client client = pooled.getClient();
+        Jedis jedis = new Jedis(client.getHost(), client.getPort());
+        jedisPool.returnResource(pooled);
+        try {
+            jedis.connect();
+        } catch (IOException e) {
+            throw new JOhmException(e);
+        }
+        return jedis;
+    }
+
+    private static void disconnect(final Jedis jedis) {
+        if (jedis != null) {
+            try {
+                jedis.getClient().disconnect();
+            } catch (RuntimeException e) {
+                // it is dropped either way
+            }
+        }
+    }
+
+    private static boolean sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    private final class Subscriber extends JedisPubSub {
+        private final CountDownLatch subscribed = new CountDownLatch(1);
+
+        public void onSubscribe(final String channel,
+                final int subscribedChannels) {
+            // anything published while not subscribed has been missed
+            cache.clear();
+            subscribed.countDown();
+            if (!running) {
+                unsubscribe();
+            }
+        }
+
+        public void onMessage(final String channel, final String message) {
+            String[] tokens = message.split(" ");
+            if (tokens[0].equals(sender)) {
+                return;
+            }
+            for (int i = 1; i < tokens.length; i++) {
+                cache.relayed(tokens[i]);
+            }
+            synchronized (pending) {
+                keysReceived += tokens.length - 1;
+            }
+        }
+
+        public void onUnsubscribe(final String channel,
+                final int subscribedChannels) {
+        }
+
+        public void onPMessage(final String pattern, final String channel,
+                final String message) {
+        }
+
+        public void onPSubscribe(final String pattern,
+                final int subscribedChannels) {
+        }
+
+        public void onPUnsubscribe(final String pattern,
+                final int subscribedChannels) {
+        }
+    }
+}
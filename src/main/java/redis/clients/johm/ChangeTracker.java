@@ -0,0 +1,108 @@
+package redis.clients.johm;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import redis.clients.johm.collections.RedisArray;
+
+/**
+ * ChangeTracker remembers, per persisted Model key, what was last loaded from
+ * or written to Redis for one instance of that Model. save() diffs against
+ * that snapshot instead of reading the stored state back first.
+ * 
+ * Snapshots hold their Model instance weakly and are only handed out for the
+ * very instance they were taken of, so other instances loaded for the same id
+ * keep reading the stored state. Writes to Redis that bypass this JVM's JOhm
+ * are not seen by a snapshot.
+ */
+final class ChangeTracker {
+    private final Map<String, Snapshot> snapshots = new HashMap<String, Snapshot>();
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+    synchronized Snapshot get(final String key, final Object model) {
+        expungeCollected();
+        Snapshot snapshot = snapshots.get(key);
+        if (snapshot != null && snapshot.get() == model) {
+            return snapshot;
+        }
+        return null;
+    }
+
+    synchronized void put(final String key, final Object model,
+            final Map<String, String> hash, final List<List<String>> arrays) {
+        expungeCollected();
+        snapshots.put(key, new Snapshot(key, model, hash, arrays, queue));
+    }
+
+    /**
+     * Snapshot a Model instance that was just loaded from the given hash.
+     */
+    void putLoaded(final Object model, final ModelMetadata metadata,
+            final Map<String, String> hash) {
+        Nest<Object> nest = new Nest<Object>(model);
+        List<List<String>> arrays = new ArrayList<List<String>>();
+        for (Field field : metadata.getArrays()) {
+            Array annotation = metadata.getArray(field);
+            RedisArray<Object> redisArray = new RedisArray<Object>(
+                    annotation.length(), annotation.of(), nest, field, model);
+            arrays.add(redisArray.toStored((Object[]) metadata.getAccessor(
+                    field).get(model)));
+        }
+        put(nest.cat(metadata.getId(model)).key(), model, hash, arrays);
+    }
+
+    synchronized void remove(final String key) {
+        snapshots.remove(key);
+    }
+
+    synchronized void clear() {
+        snapshots.clear();
+    }
+
+    private void expungeCollected() {
+        Object collected;
+        while ((collected = queue.poll()) != null) {
+            Snapshot snapshot = (Snapshot) collected;
+            if (snapshots.get(snapshot.key) == snapshot) {
+                snapshots.remove(snapshot.key);
+            }
+        }
+    }
+
+    static final class Snapshot extends WeakReference<Object> {
+        private final String key;
+        private final Map<String, String> hash;
+        private final List<List<String>> arrays;
+
+        private Snapshot(final String key, final Object model,
+                final Map<String, String> hash,
+                final List<List<String>> arrays,
+                final ReferenceQueue<Object> queue) {
+            super(model, queue);
+            this.key = key;
+            this.hash = Collections.unmodifiableMap(hash);
+            this.arrays = Collections.unmodifiableList(arrays);
+        }
+
+        /**
+         * The attributes and references as stored in the Model's hash.
+         */
+        Map<String, String> getHash() {
+            return hash;
+        }
+
+        /**
+         * The stored elements of each of the Model's arrays, in the order of
+         * ModelMetadata.getArrays().
+         */
+        List<List<String>> getArrays() {
+            return arrays;
+        }
+    }
+}
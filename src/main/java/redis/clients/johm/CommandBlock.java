@@ -0,0 +1,70 @@
+package redis.clients.johm;
+
+import java.util.Map;
+
+/**
+ * CommandBlock is a batch of commands for a Backend to send together.
+ * execute() queues them by calling the Pipeline methods the block inherits,
+ * which forward to the Pipeline the Backend sets before running it.
+ */
+public abstract class CommandBlock implements Pipeline {
+    private Pipeline pipeline;
+
+    public void setPipeline(final Pipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    public abstract void execute();
+
+    public void exists(final byte[] key) {
+        pipeline.exists(key);
+    }
+
+    public void del(final byte[] key) {
+        pipeline.del(key);
+    }
+
+    public void hgetAll(final byte[] key) {
+        pipeline.hgetAll(key);
+    }
+
+    public void hmget(final byte[] key, final String... fields) {
+        pipeline.hmget(key, fields);
+    }
+
+    public void hmset(final byte[] key, final Map<byte[], byte[]> hash) {
+        pipeline.hmset(key, hash);
+    }
+
+    public void hdel(final byte[] key, final String field) {
+        pipeline.hdel(key, field);
+    }
+
+    public void sadd(final byte[] key, final String member) {
+        pipeline.sadd(key, member);
+    }
+
+    public void srem(final byte[] key, final String member) {
+        pipeline.srem(key, member);
+    }
+
+    public void smembers(final byte[] key) {
+        pipeline.smembers(key);
+    }
+
+    public void sismember(final byte[] key, final String member) {
+        pipeline.sismember(key, member);
+    }
+
+    public void rpush(final byte[] key, final String string) {
+        pipeline.rpush(key, string);
+    }
+
+    public void lrange(final byte[] key, final int start, final int end) {
+        pipeline.lrange(key, start, end);
+    }
+
+    public void zrange(final byte[] key, final int start, final int end) {
+        pipeline.zrange(key, start, end);
+    }
+}
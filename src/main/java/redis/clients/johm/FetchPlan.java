@@ -0,0 +1,148 @@
+package redis.clients.johm;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import redis.clients.johm.JOhmUtils.JOhmCollectionDataType;
+
+/**
+ * FetchPlan declares which parts of a Model graph to load together with the
+ * Model, as dotted paths of field names. For instance
+ * FetchPlan.of("country", "purchases", "purchases.item") loads a User's country
+ * reference, its purchases collection and the item of each purchase.
+ *
+ * A path may name @Reference fields, JOhm collections and @Array fields; the
+ * Models it reaches are loaded in pipelined waves, one per level of the plan.
+ * Named LazyReference fields are handed out already loaded and named
+ * collections serve their prefetched elements until they are modified. Plain
+ * @Reference fields and @Array fields are always loaded, naming them only
+ * extends the plan to the Models they reference.
+ */
+public final class FetchPlan {
+    /**
+     * Loads no LazyReference and no collection eagerly.
+     */
+    public static final FetchPlan NONE = new FetchPlan(Collections
+            .<String, FetchPlan> emptyMap());
+
+    private final Map<String, FetchPlan> paths;
+
+    private FetchPlan(final Map<String, FetchPlan> paths) {
+        this.paths = paths;
+    }
+
+    public static FetchPlan of(final String... paths) {
+        Map<String, FetchPlan> plan = new HashMap<String, FetchPlan>();
+        for (String path : paths) {
+            if (JOhmUtils.isNullOrEmpty(path)) {
+                throw new InvalidFieldException();
+            }
+            add(plan, path.split("\\."), 0);
+        }
+        return new FetchPlan(plan);
+    }
+
+    private static void add(final Map<String, FetchPlan> plan,
+            final String[] path, final int from) {
+        if (from == path.length) {
+            return;
+        }
+        FetchPlan child = plan.get(path[from]);
+        if (child == null || child == NONE) {
+            child = new FetchPlan(new HashMap<String, FetchPlan>());
+            plan.put(path[from], child);
+        }
+        add(child.paths, path, from + 1);
+    }
+
+    /**
+     * Whether the given field is part of this plan.
+     */
+    public boolean includes(final String fieldName) {
+        return paths.containsKey(fieldName);
+    }
+
+    /**
+     * The plan for the Models reached through the given field, NONE if the
+     * field is not part of this plan or ends its path.
+     */
+    public FetchPlan get(final String fieldName) {
+        FetchPlan child = paths.get(fieldName);
+        return child == null || child.paths.isEmpty() ? NONE : child;
+    }
+
+    /**
+     * The union of this plan and the given one.
+     */
+    FetchPlan merge(final FetchPlan other) {
+        if (other.paths.isEmpty() || other == this) {
+            return this;
+        }
+        if (paths.isEmpty()) {
+            return other;
+        }
+        Map<String, FetchPlan> merged = new HashMap<String, FetchPlan>(paths);
+        for (Map.Entry<String, FetchPlan> entry : other.paths.entrySet()) {
+            FetchPlan child = merged.get(entry.getKey());
+            merged.put(entry.getKey(), child == null ? entry.getValue()
+                    : child.merge(entry.getValue()));
+        }
+        return new FetchPlan(merged);
+    }
+
+    /**
+     * Check that every path of this plan names fields a plan can follow,
+     * starting from the given Model class.
+     *
+     * @throws InvalidFieldException
+     *             if a path does not
+     */
+    void validate(final Class<?> clazz) {
+        ModelMetadata metadata = ModelMetadata.forClass(clazz);
+        for (Map.Entry<String, FetchPlan> entry : paths.entrySet()) {
+            Field field = metadata.getField(entry.getKey());
+            if (field == null) {
+                throw new InvalidFieldException();
+            }
+            FetchPlan child = entry.getValue();
+            if (metadata.isReference(field)) {
+                child.validate(metadata.getReferenceClazz(field));
+            } else if (metadata.getArray(field) != null) {
+                child.validateElements(metadata.getArray(field).of());
+            } else if (metadata.getCollection(field) instanceof CollectionMap) {
+                CollectionMap map = (CollectionMap) metadata
+                        .getCollection(field);
+                child.validateElements(map.key(), map.value());
+            } else if (metadata.getCollection(field) instanceof CollectionList) {
+                child.validateElements(((CollectionList) metadata
+                        .getCollection(field)).of());
+            } else if (metadata.getCollection(field) instanceof CollectionSet) {
+                child.validateElements(((CollectionSet) metadata
+                        .getCollection(field)).of());
+            } else if (metadata.getCollection(field) instanceof CollectionSortedSet) {
+                child.validateElements(((CollectionSortedSet) metadata
+                        .getCollection(field)).of());
+            } else {
+                throw new InvalidFieldException();
+            }
+        }
+    }
+
+    private void validateElements(final Class<?>... elementClazzes) {
+        if (paths.isEmpty()) {
+            return;
+        }
+        boolean modelElements = false;
+        for (Class<?> elementClazz : elementClazzes) {
+            if (JOhmUtils.detectJOhmCollectionDataType(elementClazz) == JOhmCollectionDataType.MODEL) {
+                validate(elementClazz);
+                modelElements = true;
+            }
+        }
+        if (!modelElements) {
+            throw new InvalidFieldException();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package redis.clients.johm;
+
+import java.lang.reflect.Field;
+
+import redis.clients.util.SafeEncoder;
+
+/**
+ * FieldAccessor reads and writes a single persisted field of a Model. One
+ * accessor is created per field when the Model's ModelMetadata is built, so
+ * implementations are free to do any expensive specialization up front.
+ *
+ * The String based methods map a field to and from its Redis hash
+ * representation, and setBytes() maps it from the raw bytes of a reply. The
+ * primitive-typed methods let numeric attributes be mapped without boxing; by
+ * default they fall back to the boxed get/set.
+ */
+public abstract class FieldAccessor {
+    protected final Field field;
+
+    protected FieldAccessor(final Field field) {
+        this.field = field;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public abstract Object get(Object model);
+
+    public abstract void set(Object model, Object value);
+
+    /**
+     * Read the field as it is stored in a Redis hash, or null if unset.
+     */
+    public String getString(final Object model) {
+        Object value = get(model);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Write the field from its Redis hash representation. A null value
+     * follows the defaults of JOhmUtils.Convertor.
+     */
+    public void setString(final Object model, final String value) {
+        set(model, JOhmUtils.Convertor.convert(field, value));
+    }
+
+    /**
+     * Write the field from the UTF-8 bytes of its Redis hash representation,
+     * or null if unset. By default the bytes are decoded and passed to
+     * setString(); numeric accessors may parse them directly.
+     */
+    public void setBytes(final Object model, final byte[] value) {
+        setString(model, value == null ? null : SafeEncoder.encode(value));
+    }
+
+    public int getInt(final Object model) {
+        return ((Number) get(model)).intValue();
+    }
+
+    public void setInt(final Object model, final int value) {
+        set(model, value);
+    }
+
+    public long getLong(final Object model) {
+        return ((Number) get(model)).longValue();
+    }
+
+    public void setLong(final Object model, final long value) {
+        set(model, value);
+    }
+
+    public float getFloat(final Object model) {
+        return ((Number) get(model)).floatValue();
+    }
+
+    public void setFloat(final Object model, final float value) {
+        set(model, value);
+    }
+
+    public double getDouble(final Object model) {
+        return ((Number) get(model)).doubleValue();
+    }
+
+    public void setDouble(final Object model, final double value) {
+        set(model, value);
+    }
+}
@@ -0,0 +1,13 @@
+package redis.clients.johm;
+
+import java.lang.reflect.Field;
+
+/**
+ * FieldAccessorFactory is the extension point through which JOhm obtains the
+ * FieldAccessor of every persisted Model field. A factory may return null for
+ * a field it does not handle, in which case JOhm falls back to its reflection
+ * based accessors.
+ */
+public interface FieldAccessorFactory {
+    FieldAccessor accessorFor(Field field);
+}
@@ -0,0 +1,92 @@
+package redis.clients.johm;
+
+import java.util.BitSet;
+
+/**
+ * IdFilter is the Bloom filter of the ids a ModelCache knows may be stored for
+ * one Model class. It answers "definitely absent" for most ids never added,
+ * and "maybe present" for every id added. Ids cannot be removed, so deleted
+ * Models keep answering "maybe present".
+ *
+ * Not thread-safe; ModelCache guards it.
+ */
+final class IdFilter {
+    private final BitSet bits;
+    private final int size;
+    private final int hashes;
+    // false until seeded with the ids stored so far
+    private boolean seeded;
+    private long rejections;
+    private long falsePositives;
+
+    IdFilter(final int expectedIds, final double falsePositiveRate) {
+        if (expectedIds <= 0 || falsePositiveRate <= 0
+                || falsePositiveRate >= 1) {
+            throw new JOhmException(
+                    "A Bloom filter needs a positive number of expected ids and a false positive rate between 0 and 1");
+        }
+        double ln2 = Math.log(2);
+        this.size = (int) Math.ceil(-expectedIds * Math.log(falsePositiveRate)
+                / (ln2 * ln2));
+        this.hashes = Math.max(1, (int) Math.round((double) size
+                / expectedIds * ln2));
+        this.bits = new BitSet(size);
+    }
+
+    void add(final long id) {
+        long hash1 = mix(id);
+        long hash2 = mix(hash1);
+        for (int i = 0; i < hashes; i++) {
+            bits.set(index(hash1 + i * hash2));
+        }
+    }
+
+    boolean mightContain(final long id) {
+        long hash1 = mix(id);
+        long hash2 = mix(hash1);
+        for (int i = 0; i < hashes; i++) {
+            if (!bits.get(index(hash1 + i * hash2))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int index(final long hash) {
+        return (int) ((hash & Long.MAX_VALUE) % size);
+    }
+
+    // the finalizer of MurmurHash3
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    boolean isSeeded() {
+        return seeded;
+    }
+
+    void setSeeded() {
+        seeded = true;
+    }
+
+    void rejected() {
+        rejections++;
+    }
+
+    void falsePositive() {
+        falsePositives++;
+    }
+
+    long getRejections() {
+        return rejections;
+    }
+
+    long getFalsePositives() {
+        return falsePositives;
+    }
+}
@@ -0,0 +1,25 @@
+package redis.clients.johm;
+
+/**
+ * IdGenerator is the extension point through which JOhm allocates the ids of
+ * new Models, installed with JOhm.setIdGenerator(). An id must never be handed
+ * out twice for the same Model class, across all processes sharing the Redis
+ * instance.
+ */
+public interface IdGenerator {
+    /**
+     * Allocate count new ids for Models of the given class.
+     * 
+     * @param backend
+     *            the Backend JOhm is using, for generators that allocate from
+     *            Redis
+     */
+    long[] allocate(Class<?> clazz, int count, Backend backend);
+
+    /**
+     * The highest id allocated so far for Models of the given class, by any
+     * process, or 0 if there is none. JOhm.iterateAll() walks the ids from 1
+     * up to it, so ids should be positive and not too sparse.
+     */
+    long maxId(Class<?> clazz, Backend backend);
+}
@@ -2,17 +2,17 @@ package redis.clients.johm;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import redis.clients.jedis.JedisException;
 import redis.clients.jedis.JedisPool;
-import redis.clients.jedis.TransactionBlock;
-import redis.clients.johm.collections.RedisArray;
+import redis.clients.util.SafeEncoder;
 
 /**
  * JOhm serves as the delegate responsible for heavy-lifting all mapping
@@ -20,7 +20,14 @@ import redis.clients.johm.collections.RedisArray;
  * on the other.
  */
 public final class JOhm {
-    private static JedisPool jedisPool;
+    private static Backend backend;
+    private static volatile boolean changeTracking;
+    private static final ChangeTracker changeTracker = new ChangeTracker();
+    private static volatile ModelCache modelCache;
+    private static volatile IdGenerator idGenerator = new BlockIdGenerator();
+
+    private static volatile int batchSize = 1000;
+    private static volatile int pageSize = 20;
 
     /**
      * Read the id from the given model. This operation will typically be useful
@@ -40,39 +47,80 @@ public final class JOhm {
 
     /**
      * Load the model persisted in Redis looking it up by its id and Class type.
+     * Its hash and arrays are read in one pipelined round trip, and an empty
+     * hash means no model is stored for the id.
      * 
      * @param <T>
      * @param clazz
      * @param id
      * @return
      */
-    @SuppressWarnings("unchecked")
     public static <T> T get(Class<?> clazz, long id) {
-        JOhmUtils.Validator.checkValidModelClazz(clazz);
+        return JOhm.<T> get(clazz, id, FetchPlan.NONE);
+    }
 
-        Nest nest = new Nest(clazz);
-        nest.setJedisPool(jedisPool);
-        if (!nest.cat(id).exists()) {
-            return null;
+    /**
+     * Load the model persisted in Redis looking it up by its id and Class
+     * type, together with the part of its graph the given plan names. The
+     * model and the models the plan reaches are loaded in pipelined waves, one
+     * per level of the plan.
+     * 
+     * @return the model, or null if no model is stored for the id
+     * @throws InvalidFieldException
+     *             if a path of the plan does not name a reference, array or
+     *             collection
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(Class<?> clazz, long id, FetchPlan plan) {
+        plan.validate(clazz);
+        Session session = Session.join();
+        try {
+            return (T) newLoader().loadInOrder(clazz,
+                    Collections.singletonList(id), plan).get(0);
+        } finally {
+            session.leave();
         }
+    }
 
-        Object newInstance;
-        try {
-            newInstance = clazz.newInstance();
-            JOhmUtils.loadId(newInstance, id);
-            JOhmUtils.initCollections(newInstance, nest);
-
-            Map<String, String> hashedObject = nest.cat(id).hgetAll();
-            for (Field field : JOhmUtils.gatherAllFields(clazz)) {
-                fillField(hashedObject, newInstance, field);
-                fillArrayField(nest, newInstance, field);
-            }
+    /**
+     * Load the models persisted in Redis looking them up by their ids and
+     * Class type. The hashes of all models, and then of all models they
+     * reference, are each read in one pipelined round trip.
+     * 
+     * @param <T>
+     * @param clazz
+     * @param ids
+     * @return the models in the order of their ids, skipping ids no model is
+     *         stored for
+     */
+    public static <T> List<T> getAll(Class<?> clazz, long... ids) {
+        List<Long> idList = new ArrayList<Long>(ids.length);
+        for (long id : ids) {
+            idList.add(id);
+        }
+        return JOhm.<T> getAll(clazz, idList);
+    }
+
+    public static <T> List<T> getAll(Class<?> clazz, Collection<Long> ids) {
+        return JOhm.<T> getAll(clazz, ids, FetchPlan.NONE);
+    }
 
-            return (T) newInstance;
-        } catch (InstantiationException e) {
-            throw new JOhmException(e);
-        } catch (IllegalAccessException e) {
-            throw new JOhmException(e);
+    /**
+     * Load the models persisted in Redis looking them up by their ids and
+     * Class type, together with the part of their graphs the given plan
+     * names.
+     * 
+     * @see #get(Class, long, FetchPlan)
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> List<T> getAll(Class<?> clazz, Collection<Long> ids,
+            FetchPlan plan) {
+        plan.validate(clazz);
+        Session session = Session.join();
+        try {
+            return (List<T>) newLoader().load(clazz, ids, plan);
+        } finally {
+            session.leave();
         }
     }
 
@@ -87,48 +135,36 @@ public final class JOhm {
      *            Name of Model's attribute to search
      * @param attributeValue
      *            Attribute's value to search in index
-     * @return
+     * @return a read-only List of the matches that loads them lazily, in
+     *         pages, as they are accessed; a match whose Model has been
+     *         deleted without deleting its indexes is skipped, and is only
+     *         left out of size() once its page is loaded
      */
     @SuppressWarnings("unchecked")
     public static <T> List<T> find(Class<?> clazz, String attributeName,
             Object attributeValue) {
-        JOhmUtils.Validator.checkValidModelClazz(clazz);
+        ModelMetadata metadata = ModelMetadata.forClass(clazz);
         List<Object> results = null;
         if (!JOhmUtils.Validator.isIndexable(attributeName)) {
             throw new InvalidFieldException();
         }
 
-        try {
-            Field field = clazz.getDeclaredField(attributeName);
-            field.setAccessible(true);
-            if (!field.isAnnotationPresent(Indexed.class)) {
-                throw new InvalidFieldException();
-            }
-            if (field.isAnnotationPresent(Reference.class)) {
-                attributeName = JOhmUtils.getReferenceKeyName(field);
-            }
-        } catch (SecurityException e) {
-            throw new InvalidFieldException();
-        } catch (NoSuchFieldException e) {
+        Field field = metadata.getField(attributeName);
+        if (field == null || !metadata.isIndexed(field)) {
             throw new InvalidFieldException();
         }
+        attributeName = metadata.getKeyName(field);
         if (JOhmUtils.isNullOrEmpty(attributeValue)) {
             throw new InvalidFieldException();
         }
-        Nest nest = new Nest(clazz);
-        nest.setJedisPool(jedisPool);
+        Nest<Object> nest = new Nest<Object>(clazz);
+        nest.setBackend(backend);
         Set<String> modelIdStrings = nest.cat(attributeName)
                 .cat(attributeValue).smembers();
         if (modelIdStrings != null) {
-            // TODO: Do this lazy
-            results = new ArrayList<Object>();
-            Object indexed = null;
-            for (String modelIdString : modelIdStrings) {
-                indexed = get(clazz, Long.parseLong(modelIdString));
-                if (indexed != null) {
-                    results.add(indexed);
-                }
-            }
+            results = new LazyModelList<Object>(clazz, toIds(modelIdStrings),
+                    pageSize, batchSize, backend,
+                    changeTracking ? changeTracker : null, modelCache);
         }
         return (List<T>) results;
     }
@@ -148,98 +184,44 @@ public final class JOhm {
 
     @SuppressWarnings("unchecked")
     public static <T> T save(final Object model, boolean saveChildren) {
-        if (!isNew(model)) {
-            delete(model.getClass(), JOhmUtils.getId(model));
+        Session session = Session.join();
+        try {
+            newWriter().save(Collections.singletonList(model), saveChildren);
+        } finally {
+            session.leave();
         }
-        final Nest nest = initIfNeeded(model);
+        return (T) model;
+    }
 
-        final Map<String, String> hashedObject = new HashMap<String, String>();
-        Map<RedisArray<Object>, Object[]> pendingArraysToPersist = null;
+    /**
+     * Save all given models to Redis. Ids of new models are allocated in bulk
+     * and the models are written in pipelined MULTI/EXEC transactions of
+     * batch size models each, so each batch is saved atomically in a handful
+     * of round trips. Like save(), this does not save child models;
+     * references to models saved in the same call are fine though.
+     * 
+     * @param models
+     */
+    public static void saveAll(final Collection<?> models) {
+        int batchSize = JOhm.batchSize;
+        List<Object> batch = new ArrayList<Object>(Math.min(models.size(),
+                batchSize));
+        ModelWriter writer = newWriter();
+        Session session = Session.join();
         try {
-            String fieldName = null;
-            for (Field field : JOhmUtils.gatherAllFields(model.getClass())) {
-                field.setAccessible(true);
-                if (JOhmUtils.detectJOhmCollection(field)
-                        || field.isAnnotationPresent(Id.class)) {
-                    if (field.isAnnotationPresent(Id.class)) {
-                        JOhmUtils.Validator.checkValidIdType(field);
-                    }
-                    continue;
-                }
-                if (field.isAnnotationPresent(Array.class)) {
-                    Object[] backingArray = (Object[]) field.get(model);
-                    int actualLength = backingArray == null ? 0
-                            : backingArray.length;
-                    JOhmUtils.Validator.checkValidArrayBounds(field,
-                            actualLength);
-                    Array annotation = field.getAnnotation(Array.class);
-                    RedisArray<Object> redisArray = new RedisArray<Object>(
-                            annotation.length(), annotation.of(), nest, field,
-                            model);
-                    if (pendingArraysToPersist == null) {
-                        pendingArraysToPersist = new LinkedHashMap<RedisArray<Object>, Object[]>();
-                    }
-                    pendingArraysToPersist.put(redisArray, backingArray);
-                }
-                JOhmUtils.Validator.checkAttributeReferenceIndexRules(field);
-                if (field.isAnnotationPresent(Attribute.class)) {
-                    fieldName = field.getName();
-                    Object fieldValueObject = field.get(model);
-                    if (fieldValueObject != null) {
-                        hashedObject
-                                .put(fieldName, fieldValueObject.toString());
-                    }
-
-                }
-                if (field.isAnnotationPresent(Reference.class)) {
-                    fieldName = JOhmUtils.getReferenceKeyName(field);
-                    Object child = field.get(model);
-                    if (child != null) {
-                        if (JOhmUtils.getId(child) == null) {
-                            throw new MissingIdException();
-                        }
-                        if (saveChildren) {
-                            save(child, saveChildren); // some more work to do
-                        }
-                        hashedObject.put(fieldName, String.valueOf(JOhmUtils
-                                .getId(child)));
-                    }
+            for (Object model : models) {
+                batch.add(model);
+                if (batch.size() == batchSize) {
+                    writer.save(batch, false);
+                    batch.clear();
                 }
-                if (field.isAnnotationPresent(Indexed.class)) {
-                    Object fieldValue = field.get(model);
-                    if (fieldValue != null
-                            && field.isAnnotationPresent(Reference.class)) {
-                        fieldValue = JOhmUtils.getId(fieldValue);
-                    }
-                    if (!JOhmUtils.isNullOrEmpty(fieldValue)) {
-                        nest.cat(fieldName).cat(fieldValue).sadd(
-                                String.valueOf(JOhmUtils.getId(model)));
-                    }
-                }
-                // always add to the all set, to support getAll
-                nest.cat("all").sadd(String.valueOf(JOhmUtils.getId(model)));
-            }
-        } catch (IllegalArgumentException e) {
-            throw new JOhmException(e);
-        } catch (IllegalAccessException e) {
-            throw new JOhmException(e);
-        }
-
-        nest.multi(new TransactionBlock() {
-            public void execute() throws JedisException {
-                del(nest.cat(JOhmUtils.getId(model)).key());
-                hmset(nest.cat(JOhmUtils.getId(model)).key(), hashedObject);
             }
-        });
-
-        if (pendingArraysToPersist != null && pendingArraysToPersist.size() > 0) {
-            for (Map.Entry<RedisArray<Object>, Object[]> arrayEntry : pendingArraysToPersist
-                    .entrySet()) {
-                arrayEntry.getKey().write(arrayEntry.getValue());
+            if (!batch.isEmpty()) {
+                writer.save(batch, false);
             }
+        } finally {
+            session.leave();
         }
-
-        return (T) model;
     }
 
     /**
@@ -254,148 +236,367 @@ public final class JOhm {
         return delete(clazz, id, true, false);
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Delete the model of the given Class type and id. Only the stored values
+     * of its indexed fields, and of its references if children are deleted,
+     * are read, with HMGET, along with the elements of its indexed arrays; the
+     * index entries, its entry in the all set and the model itself are then
+     * removed in one pipelined MULTI/EXEC. The model is deleted before its
+     * children, so cyclic references are fine.
+     * 
+     * @return whether a model was stored for the id
+     */
     public static boolean delete(Class<?> clazz, long id,
-            boolean deleteIndexes, boolean deleteChildren) {
-        JOhmUtils.Validator.checkValidModelClazz(clazz);
-        boolean deleted = false;
-        Object persistedModel = get(clazz, id);
-        if (persistedModel != null) {
-            Nest nest = new Nest(persistedModel);
-            nest.setJedisPool(jedisPool);
-            if (deleteIndexes) {
-                // think about promoting deleteChildren as default behavior so
-                // that this field lookup gets folded into that
-                // if-deleteChildren block
-                for (Field field : JOhmUtils.gatherAllFields(clazz)) {
-                    if (field.isAnnotationPresent(Indexed.class)) {
-                        field.setAccessible(true);
-                        Object fieldValue = null;
-                        try {
-                            fieldValue = field.get(persistedModel);
-                        } catch (IllegalArgumentException e) {
-                            throw new JOhmException(e);
-                        } catch (IllegalAccessException e) {
-                            throw new JOhmException(e);
-                        }
-                        if (fieldValue != null
-                                && field.isAnnotationPresent(Reference.class)) {
-                            fieldValue = JOhmUtils.getId(fieldValue);
-                        }
-                        if (!JOhmUtils.isNullOrEmpty(fieldValue)) {
-                            nest.cat(field.getName()).cat(fieldValue).srem(
-                                    String.valueOf(id));
-                        }
-                    }
+            final boolean deleteIndexes, final boolean deleteChildren) {
+        Session session = Session.join();
+        try {
+            return remove(clazz, id, deleteIndexes, deleteChildren);
+        } finally {
+            session.leave();
+        }
+    }
+
+    private static boolean remove(Class<?> clazz, long id,
+            final boolean deleteIndexes, final boolean deleteChildren) {
+        final ModelMetadata metadata = ModelMetadata.forClass(clazz);
+        final Nest<Object> nest = new Nest<Object>(clazz);
+        nest.setBackend(backend);
+        final String key = nest.cat(id).key();
+        final byte[] encodedKey = SafeEncoder.encode(key);
+        final String modelId = String.valueOf(id);
+
+        final List<String> keyNames = new ArrayList<String>();
+        final List<Field> indexedArrays = new ArrayList<Field>();
+        if (deleteIndexes) {
+            for (Field field : metadata.getIndexed()) {
+                keyNames.add(metadata.getKeyName(field));
+            }
+            for (Field field : metadata.getArrays()) {
+                if (metadata.isIndexed(field)) {
+                    indexedArrays.add(field);
                 }
             }
-            if (deleteChildren) {
-                for (Field field : JOhmUtils.gatherAllFields(clazz)) {
-                    if (field.isAnnotationPresent(Reference.class)) {
-                        field.setAccessible(true);
-                        try {
-                            Object child = field.get(persistedModel);
-                            if (child != null) {
-                                delete(child.getClass(),
-                                        JOhmUtils.getId(child), deleteIndexes,
-                                        deleteChildren); // children
+        }
+        if (deleteChildren) {
+            for (Field field : metadata.getReferences()) {
+                keyNames.add(metadata.getKeyName(field));
+            }
+        }
+        List<Object> replies = nest.pipelined(new CommandBlock() {
+            public void execute() {
+                exists(encodedKey);
+                if (!keyNames.isEmpty()) {
+                    hmget(encodedKey, keyNames.toArray(new String[keyNames
+                            .size()]));
+                }
+                for (Field field : indexedArrays) {
+                    lrange(nest.cat(modelId).cat(field.getName())
+                            .keyBytes(), 0, -1);
+                }
+            }
+        });
+        if (((Long) replies.get(0)) == 0) {
+            return false;
+        }
+        final Map<String, String> stored = new HashMap<String, String>();
+        int reply = 1;
+        if (!keyNames.isEmpty()) {
+            List<String> values = JOhmUtils.toStrings(replies.get(reply++));
+            for (int i = 0; i < keyNames.size(); i++) {
+                stored.put(keyNames.get(i), values.get(i));
+            }
+        }
+        final List<Set<String>> storedArrays = new ArrayList<Set<String>>();
+        for (int i = 0; i < indexedArrays.size(); i++) {
+            storedArrays.add(new HashSet<String>(JOhmUtils.toStrings(replies
+                    .get(reply++))));
+        }
+
+        CommandBlock deletion = new CommandBlock() {
+            public void execute() {
+                if (deleteIndexes) {
+                    for (Field field : metadata.getIndexed()) {
+                        String keyName = metadata.getKeyName(field);
+                        String value = stored.get(keyName);
+                        if (!JOhmUtils.isNullOrEmpty(value)) {
+                            srem(nest.cat(keyName).cat(value).keyBytes(),
+                                    modelId);
+                        }
+                    }
+                    for (int i = 0; i < indexedArrays.size(); i++) {
+                        String fieldName = indexedArrays.get(i).getName();
+                        for (String value : storedArrays.get(i)) {
+                            if (!JOhmUtils.isNullOrEmpty(value)) {
+                                srem(nest.cat(fieldName).cat(value).keyBytes(),
+                                        modelId);
                             }
-                        } catch (IllegalArgumentException e) {
-                            throw new JOhmException(e);
-                        } catch (IllegalAccessException e) {
-                            throw new JOhmException(e);
                         }
                     }
-                    if (field.isAnnotationPresent(Array.class)) {
-                        field.setAccessible(true);
-                        Array annotation = field.getAnnotation(Array.class);
-                        RedisArray redisArray = new RedisArray(annotation
-                                .length(), annotation.of(), nest, field,
-                                persistedModel);
-                        redisArray.clear();
+                }
+                srem(nest.cat("all").keyBytes(), modelId);
+                if (deleteChildren) {
+                    for (Field field : metadata.getArrays()) {
+                        del(nest.cat(modelId).cat(field.getName()).keyBytes());
                     }
                 }
+                del(encodedKey);
+            }
+        };
+        try {
+            replies = nest.pipelinedMulti(deletion);
+        } finally {
+            // a failed transaction may still have been applied
+            ModelCache cache = modelCache;
+            if (cache != null) {
+                cache.written(key);
             }
+        }
+        boolean deleted = ((Long) replies.get(replies.size() - 1)) == 1;
 
-            // now delete parent
-            deleted = nest.cat(id).del() == 1;
+        changeTracker.remove(key);
+        UnitOfWork unitOfWork = UnitOfWork.current();
+        if (unitOfWork != null) {
+            unitOfWork.remove(key);
+        }
+
+        if (deleteChildren) {
+            for (Field field : metadata.getReferences()) {
+                String childId = stored.get(metadata.getKeyName(field));
+                if (childId != null) {
+                    remove(metadata.getReferenceClazz(field), Long
+                            .parseLong(childId), deleteIndexes, deleteChildren);
+                }
+            }
         }
         return deleted;
     }
 
     /**
-     * Inject JedisPool into JOhm. This is a mandatory JOhm setup operation.
+     * Open a UnitOfWork on the calling thread, within which every model is
+     * loaded at most once until the UnitOfWork is closed.
+     * 
+     * @throws JOhmException
+     *             if the calling thread has a UnitOfWork open already
+     */
+    public static UnitOfWork openUnitOfWork() {
+        return UnitOfWork.open();
+    }
+
+    /**
+     * Open a Session on the calling thread, pinning one connection of the
+     * JedisBackend's pool to it for every command sent until the Session is
+     * closed.
+     * 
+     * @throws JOhmException
+     *             if the calling thread has a Session open already
+     */
+    public static Session openSession() {
+        return Session.open();
+    }
+
+    /**
+     * Inject JedisPool into JOhm. This is a mandatory JOhm setup operation,
+     * unless a Backend is set instead.
      * 
      * @param jedisPool
      */
     public static void setPool(final JedisPool jedisPool) {
-        JOhm.jedisPool = jedisPool;
+        JOhm.backend = JedisBackend.forPool(jedisPool);
     }
 
-    private static void fillField(final Map<String, String> hashedObject,
-            final Object newInstance, final Field field)
-            throws IllegalAccessException {
-        JOhmUtils.Validator.checkAttributeReferenceIndexRules(field);
-        if (field.isAnnotationPresent(Attribute.class)) {
-            field.setAccessible(true);
-            field.set(newInstance, JOhmUtils.Convertor.convert(field,
-                    hashedObject.get(field.getName())));
+    /**
+     * Plug in the Backend through which JOhm sends all commands, e.g. one
+     * routing keys to shards or keeping them in memory for tests.
+     * 
+     * @param backend
+     */
+    public static void setBackend(final Backend backend) {
+        if (backend == null) {
+            throw new JOhmException(
+                    "JOhm will fail to do most useful tasks without Redis");
         }
-        if (field.isAnnotationPresent(Reference.class)) {
-            field.setAccessible(true);
-            String serializedReferenceId = hashedObject.get(JOhmUtils
-                    .getReferenceKeyName(field));
-            if (serializedReferenceId != null) {
-                Long referenceId = Long.valueOf(serializedReferenceId);
-                field.set(newInstance, get(field.getType(), referenceId));
-            }
+        JOhm.backend = backend;
+    }
+
+    /**
+     * Set the number of models that are loaded per pipelined round trip when
+     * hydrating the results of find() and getAll(), and that saveAll() writes
+     * per transaction. Defaults to 1000.
+     * 
+     * @param batchSize
+     */
+    public static void setBatchSize(final int batchSize) {
+        if (batchSize < 1) {
+            throw new JOhmException("Batch size must be positive: "
+                    + batchSize);
         }
+        JOhm.batchSize = batchSize;
     }
 
-    @SuppressWarnings("unchecked")
-    private static void fillArrayField(final Nest nest, final Object model,
-            final Field field) throws IllegalArgumentException,
-            IllegalAccessException {
-        if (field.isAnnotationPresent(Array.class)) {
-            field.setAccessible(true);
-            Array annotation = field.getAnnotation(Array.class);
-            RedisArray redisArray = new RedisArray(annotation.length(),
-                    annotation.of(), nest, field, model);
-            field.set(model, redisArray.read());
+    /**
+     * Set the number of models find() loads when a result that is not loaded
+     * yet is first accessed. Defaults to 20. Results accessed in order are
+     * loaded in pages that double in size up to the batch size.
+     * 
+     * @param pageSize
+     */
+    public static void setPageSize(final int pageSize) {
+        if (pageSize < 1) {
+            throw new JOhmException("Page size must be positive: " + pageSize);
         }
+        JOhm.pageSize = pageSize;
     }
 
-    @SuppressWarnings("unchecked")
-    private static Nest initIfNeeded(final Object model) {
-        Long id = JOhmUtils.getId(model);
-        Nest nest = new Nest(model);
-        nest.setJedisPool(jedisPool);
-        if (id == null) {
-            // lazily initialize id, nest, collections
-            id = nest.cat("id").incr();
-            JOhmUtils.loadId(model, id);
-            JOhmUtils.initCollections(model, nest);
+    /**
+     * Turn change tracking on or off. While it is on, JOhm keeps a snapshot of
+     * what it last loaded or saved for each Model instance, and saving that
+     * instance again diffs against the snapshot instead of reading the stored
+     * state back from Redis first. Only the changed attributes and the
+     * affected index entries are written either way.
+     * 
+     * Snapshots do not see writes that bypass this JVM's JOhm, so only turn
+     * this on when JOhm is the sole writer of the tracked Models.
+     * 
+     * @param enabled
+     */
+    public static void setChangeTracking(final boolean enabled) {
+        changeTracking = enabled;
+        if (!enabled) {
+            changeTracker.clear();
+        }
+    }
+
+    /**
+     * Install the ModelCache that get, getAll, find and iterateAll look Models
+     * up in before reading them from Redis, or null to not cache Models. Since
+     * the cache only sees the saves and deletes of this JVM, give Models that
+     * other processes write a TTL.
+     * 
+     * @param cache
+     */
+    public static void setModelCache(final ModelCache cache) {
+        modelCache = cache;
+    }
+
+    /**
+     * Seed the Bloom filter the installed ModelCache keeps of the ids of the
+     * given Model class, which the cache ignores until then. The ids are
+     * walked batchSize at a time, up to the highest one the IdGenerator has
+     * allocated, and checked against the class's all set, so memory stays the
+     * same however many Models there are.
+     * 
+     * @param clazz
+     */
+    public static void seedBloomFilter(final Class<?> clazz) {
+        ModelCache cache = modelCache;
+        if (cache == null || !cache.isUnseeded(clazz)) {
+            return;
         }
-        return nest;
+        final Nest<Object> all = new Nest<Object>(clazz).cat("all").fork();
+        all.setBackend(backend);
+        int batchSize = JOhm.batchSize;
+        long maxId = idGenerator.maxId(clazz, backend);
+        for (long from = 1; from <= maxId; from += batchSize) {
+            final long first = from;
+            final long last = Math.min(maxId, from + batchSize - 1);
+            List<Object> replies = all.pipelined(new CommandBlock() {
+                public void execute() {
+                    for (long id = first; id <= last; id++) {
+                        sismember(all.keyBytes(), String.valueOf(id));
+                    }
+                }
+            });
+            List<Long> ids = new ArrayList<Long>();
+            for (int i = 0; i < replies.size(); i++) {
+                if (((Long) replies.get(i)) == 1) {
+                    ids.add(first + i);
+                }
+            }
+            cache.seed(clazz, ids);
+        }
+        cache.seeded(clazz);
+    }
+
+    /**
+     * Plug in the IdGenerator that allocates the ids of new models, or null to
+     * go back to a BlockIdGenerator.
+     */
+    public static void setIdGenerator(final IdGenerator generator) {
+        idGenerator = generator == null ? new BlockIdGenerator() : generator;
     }
 
+    /**
+     * Plug in the factory that creates the FieldAccessors through which JOhm
+     * reads and writes Model fields, e.g. one that generates specialized
+     * accessors. Fields the factory returns no accessor for, and all fields
+     * when the factory is null, use the reflection based accessors. This is
+     * best done once at startup since it discards all cached ModelMetadata.
+     * 
+     * @param factory
+     */
+    public static void setFieldAccessorFactory(
+            final FieldAccessorFactory factory) {
+        ModelMetadata.setFieldAccessorFactory(factory);
+    }
+
+    private static ModelLoader newLoader() {
+        return new ModelLoader(backend, changeTracking ? changeTracker
+                : null, modelCache, batchSize);
+    }
+
+    private static ModelWriter newWriter() {
+        return new ModelWriter(backend, changeTracking ? changeTracker
+                : null, modelCache, idGenerator);
+    }
+
+    /**
+     * Iterate over all models of the given Class type. Unlike getAll(), this
+     * walks their ids in ranges and loads the models one batch at a time as
+     * the iteration proceeds, so memory stays the same however many models
+     * there are. Models saved while iterating may or may not be visited.
+     * 
+     * @param <T>
+     * @param clazz
+     * @return
+     */
+    public static <T> Iterator<T> iterateAll(Class<?> clazz) {
+        ModelMetadata.forClass(clazz);
+        return new ModelIterator<T>(clazz, batchSize, backend,
+                changeTracking ? changeTracker : null, modelCache, idGenerator);
+    }
+
+    /**
+     * Load all models of the given Class type. Since they are all held in
+     * memory at once, prefer iterateAll() for classes with many models.
+     * 
+     * @param <T>
+     * @param clazz
+     * @return
+     */
     @SuppressWarnings("unchecked")
     public static <T> Set<T> getAll(Class<?> clazz) {
-        JOhmUtils.Validator.checkValidModelClazz(clazz);
+        ModelMetadata.forClass(clazz);
         Set<Object> results = null;
-        Nest nest = new Nest(clazz);
-        nest.setJedisPool(jedisPool);
-        Set<String> modelIdStrings = nest.cat("all").smembers();
-        if (modelIdStrings != null) {
-            results = new HashSet<Object>();
-            Object indexed = null;
-            for (String modelIdString : modelIdStrings) {
-                indexed = get(clazz, Long.parseLong(modelIdString));
-                if (indexed != null) {
-                    results.add(indexed);
-                }
+        Nest<Object> nest = new Nest<Object>(clazz);
+        nest.setBackend(backend);
+        Session session = Session.join();
+        try {
+            Set<String> modelIdStrings = nest.cat("all").smembers();
+            if (modelIdStrings != null) {
+                results = new HashSet<Object>(newLoader().load(clazz,
+                        toIds(modelIdStrings)));
             }
+        } finally {
+            session.leave();
         }
         return (Set<T>) results;
     }
+
+    private static List<Long> toIds(final Collection<String> idStrings) {
+        List<Long> ids = new ArrayList<Long>(idStrings.size());
+        for (String idString : idStrings) {
+            ids.add(Long.valueOf(idString));
+        }
+        return ids;
+    }
 }
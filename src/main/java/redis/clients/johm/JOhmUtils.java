@@ -7,7 +7,9 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -16,6 +18,7 @@ import redis.clients.johm.collections.RedisList;
 import redis.clients.johm.collections.RedisMap;
 import redis.clients.johm.collections.RedisSet;
 import redis.clients.johm.collections.RedisSortedSet;
+import redis.clients.util.SafeEncoder;
 
 public final class JOhmUtils {
     static String getReferenceKeyName(final Field field) {
@@ -26,13 +29,15 @@ public final class JOhmUtils {
         return getId(model, true);
     }
 
+    /**
+     * Read the id of the given model. Model validity is checked once per class
+     * when its ModelMetadata is built, so checkValidity is kept for
+     * compatibility only.
+     */
     public static Long getId(final Object model, boolean checkValidity) {
         Long id = null;
         if (model != null) {
-            if (checkValidity) {
-                Validator.checkValidModel(model);
-            }
-            id = Validator.checkValidId(model);
+            id = ModelMetadata.forModel(model).getId(model);
         }
         return id;
     }
@@ -46,86 +51,66 @@ public final class JOhmUtils {
         if (model == null || nest == null) {
             return;
         }
-        for (Field field : model.getClass().getDeclaredFields()) {
-            field.setAccessible(true);
-            try {
-                if (field.isAnnotationPresent(CollectionList.class)) {
-                    Validator.checkValidCollection(field);
-                    List<Object> list = (List<Object>) field.get(model);
-                    if (list == null) {
-                        CollectionList annotation = field
-                                .getAnnotation(CollectionList.class);
-                        RedisList<Object> redisList = new RedisList<Object>(
-                                annotation.of(), nest, field, model);
-                        field.set(model, redisList);
-                    }
-                }
-                if (field.isAnnotationPresent(CollectionSet.class)) {
-                    Validator.checkValidCollection(field);
-                    Set<Object> set = (Set<Object>) field.get(model);
-                    if (set == null) {
-                        CollectionSet annotation = field
-                                .getAnnotation(CollectionSet.class);
-                        RedisSet<Object> redisSet = new RedisSet<Object>(
-                                annotation.of(), nest, field, model);
-                        field.set(model, redisSet);
-                    }
-                }
-                if (field.isAnnotationPresent(CollectionSortedSet.class)) {
-                    Validator.checkValidCollection(field);
-                    Set<Object> sortedSet = (Set<Object>) field.get(model);
-                    if (sortedSet == null) {
-                        CollectionSortedSet annotation = field
-                                .getAnnotation(CollectionSortedSet.class);
-                        RedisSortedSet<Object> redisSortedSet = new RedisSortedSet<Object>(
-                                annotation.of(), annotation.by(), nest, field,
-                                model);
-                        field.set(model, redisSortedSet);
-                    }
-                }
-                if (field.isAnnotationPresent(CollectionMap.class)) {
-                    Validator.checkValidCollection(field);
-                    Map<Object, Object> map = (Map<Object, Object>) field
-                            .get(model);
-                    if (map == null) {
-                        CollectionMap annotation = field
-                                .getAnnotation(CollectionMap.class);
-                        RedisMap<Object, Object> redisMap = new RedisMap<Object, Object>(
-                                annotation.key(), annotation.value(), nest,
-                                field, model);
-                        field.set(model, redisMap);
-                    }
-                }
-            } catch (IllegalArgumentException e) {
-                throw new InvalidFieldException();
-            } catch (IllegalAccessException e) {
-                throw new InvalidFieldException();
+        ModelMetadata metadata = ModelMetadata.forModel(model);
+        for (Field field : metadata.getCollections()) {
+            FieldAccessor accessor = metadata.getAccessor(field);
+            if (accessor.get(model) != null) {
+                continue;
+            }
+            Annotation annotation = metadata.getCollection(field);
+            if (annotation instanceof CollectionList) {
+                RedisList<Object> redisList = new RedisList<Object>(
+                        ((CollectionList) annotation).of(), nest, field, model);
+                accessor.set(model, redisList);
+            } else if (annotation instanceof CollectionSet) {
+                RedisSet<Object> redisSet = new RedisSet<Object>(
+                        ((CollectionSet) annotation).of(), nest, field, model);
+                accessor.set(model, redisSet);
+            } else if (annotation instanceof CollectionSortedSet) {
+                CollectionSortedSet sortedSet = (CollectionSortedSet) annotation;
+                RedisSortedSet<Object> redisSortedSet = new RedisSortedSet<Object>(
+                        sortedSet.of(), sortedSet.by(), nest, field, model);
+                accessor.set(model, redisSortedSet);
+            } else if (annotation instanceof CollectionMap) {
+                CollectionMap map = (CollectionMap) annotation;
+                RedisMap<Object, Object> redisMap = new RedisMap<Object, Object>(
+                        map.key(), map.value(), nest, field, model);
+                accessor.set(model, redisMap);
             }
         }
     }
 
+    /**
+     * Decode the raw reply of a pipelined HGETALL.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, String> toHash(final Object reply) {
+        List<byte[]> flattened = (List<byte[]>) reply;
+        Map<String, String> hash = new HashMap<String, String>();
+        Iterator<byte[]> iterator = flattened.iterator();
+        while (iterator.hasNext()) {
+            hash.put(SafeEncoder.encode(iterator.next()), SafeEncoder
+                    .encode(iterator.next()));
+        }
+        return hash;
+    }
+
+    /**
+     * Decode the raw multi bulk reply of a pipelined command.
+     */
+    @SuppressWarnings("unchecked")
+    static List<String> toStrings(final Object reply) {
+        List<byte[]> raw = (List<byte[]>) reply;
+        List<String> strings = new ArrayList<String>(raw.size());
+        for (byte[] value : raw) {
+            strings.add(value == null ? null : SafeEncoder.encode(value));
+        }
+        return strings;
+    }
+
     static void loadId(final Object model, final Long id) {
         if (model != null) {
-            boolean idFieldPresent = false;
-            for (Field field : model.getClass().getDeclaredFields()) {
-                field.setAccessible(true);
-                if (field.isAnnotationPresent(Id.class)) {
-                    idFieldPresent = true;
-                    Validator.checkValidIdType(field);
-                    try {
-                        field.set(model, id);
-                    } catch (IllegalArgumentException e) {
-                        throw new JOhmException(e);
-                    } catch (IllegalAccessException e) {
-                        throw new JOhmException(e);
-                    }
-                    break;
-                }
-            }
-            if (!idFieldPresent) {
-                throw new JOhmException(
-                        "JOhm does not support a Model without an Id");
-            }
+            ModelMetadata.forModel(model).setId(model, id);
         }
     }
 
@@ -180,11 +165,11 @@ public final class JOhmUtils {
 
     static List<Field> gatherAllFields(Class<?> clazz) {
         List<Field> allFields = new ArrayList<Field>();
-        for (Field field : clazz.getDeclaredFields()) {
-            allFields.add(field);
-        }
-        while ((clazz = clazz.getSuperclass()) != null) {
-            allFields.addAll(gatherAllFields(clazz));
+        while (clazz != null) {
+            for (Field field : clazz.getDeclaredFields()) {
+                allFields.add(field);
+            }
+            clazz = clazz.getSuperclass();
         }
 
         return Collections.unmodifiableList(allFields);
@@ -294,31 +279,6 @@ public final class JOhmUtils {
             }
         }
 
-        static Long checkValidId(final Object model) {
-            Long id = null;
-            boolean idFieldPresent = false;
-            for (Field field : model.getClass().getDeclaredFields()) {
-                field.setAccessible(true);
-                if (field.isAnnotationPresent(Id.class)) {
-                    Validator.checkValidIdType(field);
-                    try {
-                        id = (Long) field.get(model);
-                        idFieldPresent = true;
-                    } catch (IllegalArgumentException e) {
-                        throw new JOhmException(e);
-                    } catch (IllegalAccessException e) {
-                        throw new JOhmException(e);
-                    }
-                    break;
-                }
-            }
-            if (!idFieldPresent) {
-                throw new JOhmException(
-                        "JOhm does not support a Model without an Id");
-            }
-            return id;
-        }
-
         static void checkValidIdType(final Field field) {
             Annotation[] annotations = field.getAnnotations();
             if (annotations.length > 1) {
@@ -0,0 +1,445 @@
+package redis.clients.johm;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.PipelineBlock;
+import redis.clients.jedis.TransactionBlock;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * JedisBackend is the Backend that sends commands through the connections of
+ * a JedisPool. Commands run on the connection of the Session open on the
+ * calling thread, if any, and on a connection borrowed for the command
+ * otherwise. A connection a command fails on is discarded rather than reused.
+ *
+ * Two JedisBackends on the same pool are equal.
+ */
+public class JedisBackend implements Backend {
+    private static volatile JedisBackend last;
+
+    private final JedisPool jedisPool;
+
+    public JedisBackend(final JedisPool jedisPool) {
+        if (jedisPool == null) {
+            throw new JOhmException(
+                    "JOhm will fail to do most useful tasks without Redis");
+        }
+        this.jedisPool = jedisPool;
+    }
+
+    /**
+     * A JedisBackend on the given pool, the same instance as the last call
+     * returned if it was for the same pool.
+     */
+    static JedisBackend forPool(final JedisPool jedisPool) {
+        JedisBackend backend = last;
+        if (backend == null || backend.jedisPool != jedisPool) {
+            backend = new JedisBackend(jedisPool);
+            last = backend;
+        }
+        return backend;
+    }
+
+    public JedisPool getPool() {
+        return jedisPool;
+    }
+
+    public String set(final byte[] key, final String value) {
+        return execute(new Command<String>() {
+            public String execute(final Jedis jedis) {
+                return jedis.set(key, SafeEncoder.encode(value));
+            }
+        });
+    }
+
+    public String get(final byte[] key) {
+        return execute(new Command<String>() {
+            public String execute(final Jedis jedis) {
+                return decode(jedis.get(key));
+            }
+        });
+    }
+
+    public Long incr(final byte[] key) {
+        return execute(new Command<Long>() {
+            public Long execute(final Jedis jedis) {
+                return jedis.incr(key);
+            }
+        });
+    }
+
+    public Long incrBy(final byte[] key, final long increment) {
+        return execute(new Command<Long>() {
+            public Long execute(final Jedis jedis) {
+                return jedis.incrBy(key, increment);
+            }
+        });
+    }
+
+    public Long del(final byte[] key) {
+        return execute(new Command<Long>() {
+            public Long execute(final Jedis jedis) {
+                return jedis.del(key);
+            }
+        });
+    }
+
+    public Boolean exists(final byte[] key) {
+        return execute(new Command<Boolean>() {
+            public Boolean execute(final Jedis jedis) {
+                return jedis.exists(key);
+            }
+        });
+    }
+
+    public String hmset(final byte[] key, final Map<String, String> hash) {
+        final Map<byte[], byte[]> encodedHash = new HashMap<byte[], byte[]>();
+        for (Map.Entry<String, String> entry : hash.entrySet()) {
+            encodedHash.put(SafeEncoder.encode(entry.getKey()), SafeEncoder
+                    .encode(entry.getValue()));
+        }
+        return execute(new Command<String>() {
+            public String execute(final Jedis jedis) {
+                return jedis.hmset(key, encodedHash);
+            }
+        });
+    }
+
+    public Map<String, String> hgetAll(final byte[] key) {
+        return execute(new Command<Map<String, String>>() {
+            public Map<String, String> execute(final Jedis jedis) {
+                Map<String, String> hash = new HashMap<String, String>();
+                for (Map.Entry<byte[], byte[]> entry : jedis.hgetAll(key)
+                        .entrySet()) {
+                    hash.put(decode(entry.getKey()), decode(entry.getValue()));
+                }
+                return hash;
+            }
+        });
+    }
+
+    public String hget(final byte[] key, final String field) {
+        return execute(new Command<String>() {
+            public String execute(final Jedis jedis) {
+                return decode(jedis.hget(key, SafeEncoder.encode(field)));
+            }
+        });
+    }
+
+    public Long hdel(final byte[] key, final String field) {
+        return execute(new Command<Long>() {
+            public Long execute(final Jedis jedis) {
+                return jedis.hdel(key, SafeEncoder.encode(field));
+            }
+        });
+    }
+
+    public Long hlen(final byte[] key) {
+        return execute(new Command<Long>() {
+            public Long execute(final Jedis jedis) {
+                return jedis.hlen(key);
+            }
+        });
+    }
+
+    public Set<String> hkeys(final byte[] key) {
+        return execute(new Command<Set<String>>() {
+            public Set<String> execute(final Jedis jedis) {
+                return decodeSet(jedis.hkeys(key));
+            }
+        });
+    }
+
+    public Long sadd(final byte[] key, final String member) {
+        return execute(new Command<Long>() {
+            public Long execute(final Jedis jedis) {
+                return jedis.sadd(key, SafeEncoder.encode(member));
+            }
+        });
+    }
+
+    public Long srem(final byte[] key, final String member) {
+        return execute(new Command<Long>() {
+            public Long execute(final Jedis jedis) {
+                return jedis.srem(key, SafeEncoder.encode(member));
+            }
+        });
+    }
+
+    public Set<String> smembers(final byte[] key) {
+        return execute(new Command<Set<String>>() {
+            public Set<String> execute(final Jedis jedis) {
+                return decodeSet(jedis.smembers(key));
+            }
+        });
+    }
+
+    public Long rpush(final byte[] key, final String string) {
+        return execute(new Command<Long>() {
+            public Long execute(final Jedis jedis) {
+                return jedis.rpush(key, SafeEncoder.encode(string));
+            }
+        });
+    }
+
+    public String lset(final byte[] key, final int index, final String value) {
+        return execute(new Command<String>() {
+            public String execute(final Jedis jedis) {
+                return jedis.lset(key, index, SafeEncoder.encode(value));
+            }
+        });
+    }
+
+    public String lindex(final byte[] key, final int index) {
+        return execute(new Command<String>() {
+            public String execute(final Jedis jedis) {
+                return decode(jedis.lindex(key, index));
+            }
+        });
+    }
+
+    public Long llen(final byte[] key) {
+        return execute(new Command<Long>() {
+            public Long execute(final Jedis jedis) {
+                return jedis.llen(key);
+            }
+        });
+    }
+
+    public Long lrem(final byte[] key, final int count, final String value) {
+        return execute(new Command<Long>() {
+            public Long execute(final Jedis jedis) {
+                return jedis.lrem(key, count, SafeEncoder.encode(value));
+            }
+        });
+    }
+
+    public List<String> lrange(final byte[] key, final int start,
+            final int end) {
+        return execute(new Command<List<String>>() {
+            public List<String> execute(final Jedis jedis) {
+                return JOhmUtils.toStrings(jedis.lrange(key, start, end));
+            }
+        });
+    }
+
+    public Set<String> zrange(final byte[] key, final int start,
+            final int end) {
+        return execute(new Command<Set<String>>() {
+            public Set<String> execute(final Jedis jedis) {
+                return decodeSet(jedis.zrange(key, start, end));
+            }
+        });
+    }
+
+    public Long zadd(final byte[] key, final double score,
+            final String member) {
+        return execute(new Command<Long>() {
+            public Long execute(final Jedis jedis) {
+                return jedis.zadd(key, score, SafeEncoder.encode(member));
+            }
+        });
+    }
+
+    public Long zcard(final byte[] key) {
+        return execute(new Command<Long>() {
+            public Long execute(final Jedis jedis) {
+                return jedis.zcard(key);
+            }
+        });
+    }
+
+    public List<Object> pipelined(final CommandBlock block) {
+        return execute(new Command<List<Object>>() {
+            public List<Object> execute(final Jedis jedis) {
+                return jedis.pipelined(new JedisPipeline(block));
+            }
+        });
+    }
+
+    public List<Object> pipelinedMulti(final CommandBlock block) {
+        return execute(new Command<List<Object>>() {
+            @SuppressWarnings("unchecked")
+            public List<Object> execute(final Jedis jedis) {
+                Client client = jedis.getClient();
+                client.multi();
+                JedisPipeline pipeline = new JedisPipeline(block);
+                pipeline.setClient(client);
+                pipeline.execute();
+                client.exec();
+                List<Object> replies = client.getAll();
+                return (List<Object>) replies.get(replies.size() - 1);
+            }
+        });
+    }
+
+    /**
+     * Run the given transaction block, for Nest.multi().
+     */
+    List<Object> multi(final TransactionBlock transaction) {
+        return execute(new Command<List<Object>>() {
+            public List<Object> execute(final Jedis jedis) {
+                return jedis.multi(transaction);
+            }
+        });
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof JedisBackend
+                && ((JedisBackend) other).jedisPool == jedisPool;
+    }
+
+    @Override
+    public int hashCode() {
+        return jedisPool.hashCode();
+    }
+
+    /**
+     * Run the given command on a connection, which is discarded if the
+     * command fails since replies may be left unread on it.
+     */
+    private <T> T execute(final Command<T> command) {
+        Jedis jedis = getResource();
+        T reply;
+        try {
+            reply = command.execute(jedis);
+        } catch (RuntimeException e) {
+            returnBrokenResource(jedis);
+            throw e;
+        }
+        returnResource(jedis);
+        return reply;
+    }
+
+    private Jedis getResource() {
+        Session session = Session.current();
+        if (session != null) {
+            Jedis jedis = session.connection(jedisPool);
+            if (jedis != null) {
+                return jedis;
+            }
+        }
+        return Session.borrow(jedisPool);
+    }
+
+    private void returnResource(final Jedis jedis) {
+        Session session = Session.current();
+        if (session == null || !session.pins(jedis)) {
+            jedisPool.returnResource(jedis);
+        }
+    }
+
+    private void returnBrokenResource(final Jedis jedis) {
+        Session session = Session.current();
+        if (session != null && session.pins(jedis)) {
+            session.broken();
+        } else {
+            jedisPool.returnBrokenResource(jedis);
+        }
+    }
+
+    private static String decode(final byte[] reply) {
+        return reply == null ? null : SafeEncoder.encode(reply);
+    }
+
+    private static Set<String> decodeSet(final Collection<byte[]> reply) {
+        Set<String> decoded = new LinkedHashSet<String>();
+        for (byte[] member : reply) {
+            decoded.add(decode(member));
+        }
+        return decoded;
+    }
+
+    private interface Command<T> {
+        T execute(Jedis jedis);
+    }
+
+    /**
+     * Queues the commands of a CommandBlock on a Jedis client, using the
+     * Jedis PipelineBlock only to be handed the client.
+     */
+    private static final class JedisPipeline extends PipelineBlock implements
+            Pipeline {
+        private final CommandBlock block;
+        private Client client;
+
+        private JedisPipeline(final CommandBlock block) {
+            this.block = block;
+        }
+
+        public void setClient(final Client client) {
+            super.setClient(client);
+            this.client = client;
+        }
+
+        public void execute() {
+            block.setPipeline(this);
+            block.execute();
+        }
+
+        public void exists(final byte[] key) {
+            client.exists(key);
+        }
+
+        public void del(final byte[] key) {
+            client.del(key);
+        }
+
+        public void hgetAll(final byte[] key) {
+            client.hgetAll(key);
+        }
+
+        public void hmget(final byte[] key, final String... fields) {
+            byte[][] encodedFields = new byte[fields.length][];
+            for (int i = 0; i < fields.length; i++) {
+                encodedFields[i] = SafeEncoder.encode(fields[i]);
+            }
+            client.hmget(key, encodedFields);
+        }
+
+        public void hmset(final byte[] key, final Map<byte[], byte[]> hash) {
+            client.hmset(key, hash);
+        }
+
+        public void hdel(final byte[] key, final String field) {
+            client.hdel(key, SafeEncoder.encode(field));
+        }
+
+        public void sadd(final byte[] key, final String member) {
+            client.sadd(key, SafeEncoder.encode(member));
+        }
+
+        public void srem(final byte[] key, final String member) {
+            client.srem(key, SafeEncoder.encode(member));
+        }
+
+        public void smembers(final byte[] key) {
+            client.smembers(key);
+        }
+
+        public void sismember(final byte[] key, final String member) {
+            client.sismember(key, SafeEncoder.encode(member));
+        }
+
+        public void rpush(final byte[] key, final String string) {
+            client.rpush(key, SafeEncoder.encode(string));
+        }
+
+        public void lrange(final byte[] key, final int start, final int end) {
+            client.lrange(key, start, end);
+        }
+
+        public void zrange(final byte[] key, final int start, final int end) {
+            client.zrange(key, start, end);
+        }
+    }
+}
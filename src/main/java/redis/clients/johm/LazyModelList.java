@@ -0,0 +1,130 @@
+package redis.clients.johm;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * LazyModelList is the read-only List of Models returned by searches. It holds
+ * only the ids of the matches and loads the Models in pages, in order, as they
+ * are accessed. Each page is loaded with a ModelLoader in pipelined round
+ * trips, and every page is twice the size of the previous one, up to the
+ * batch size, so that iterating over all matches does not cost one round trip
+ * per page.
+ *
+ * Ids whose Model is no longer stored are skipped, so a position is only known
+ * once the pages before it are loaded. size() counts the ids without loading
+ * any Model, so until the list has been iterated over it is an upper bound:
+ * a missing Model is only left out of it once its page is loaded.
+ */
+final class LazyModelList<T> extends AbstractList<T> {
+    private final Class<?> clazz;
+    private final List<Long> ids;
+    // the Models loaded so far, without the missing ones
+    private final List<Object> models;
+    private final int pageSize;
+    private final int batchSize;
+    private final Backend backend;
+    private final ChangeTracker changeTracker;
+    private final ModelCache modelCache;
+    private int nextPageSize;
+    // the position in ids of the first Model not loaded yet
+    private int nextId;
+    // how many of the ids loaded so far have no Model
+    private int missing;
+
+    LazyModelList(final Class<?> clazz, final List<Long> ids,
+            final int pageSize, final int batchSize, final Backend backend,
+            final ChangeTracker changeTracker, final ModelCache modelCache) {
+        this.clazz = clazz;
+        this.ids = ids;
+        this.models = new ArrayList<Object>();
+        this.pageSize = pageSize;
+        this.batchSize = batchSize;
+        this.backend = backend;
+        this.changeTracker = changeTracker;
+        this.modelCache = modelCache;
+        this.nextPageSize = pageSize;
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized T get(final int index) {
+        if (!has(index)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+                    + models.size());
+        }
+        return (T) models.get(index);
+    }
+
+    public synchronized int size() {
+        return ids.size() - missing;
+    }
+
+    public boolean isEmpty() {
+        return !has(0);
+    }
+
+    /**
+     * Iterates without knowing the size, so pages are only loaded as they
+     * are reached.
+     */
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int next;
+
+            public boolean hasNext() {
+                return has(next);
+            }
+
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Whether there is a Model at the given index, loading the pages up to
+     * it.
+     */
+    private synchronized boolean has(final int index) {
+        if (index < 0) {
+            return false;
+        }
+        while (index >= models.size() && nextId < ids.size()) {
+            loadPage();
+        }
+        return index < models.size();
+    }
+
+    private void loadPage() {
+        int to = Math.min(ids.size(), nextId + nextPageSize);
+        ModelLoader loader = new ModelLoader(backend, changeTracker,
+                modelCache, batchSize);
+        List<Object> page;
+        Session session = Session.join();
+        try {
+            page = loader.loadInOrder(clazz, ids.subList(nextId, to));
+        } finally {
+            session.leave();
+        }
+        for (Object model : page) {
+            if (model != null) {
+                models.add(model);
+            } else {
+                missing++;
+            }
+        }
+        nextId = to;
+        nextPageSize = Math.min(nextPageSize * 2, Math.max(batchSize,
+                pageSize));
+    }
+}
@@ -0,0 +1,74 @@
+package redis.clients.johm;
+
+/**
+ * LazyReference holds a reference to another Model that is only loaded from
+ * Redis when it is first accessed. Declaring a @Reference field as, say,
+ * LazyReference&lt;Country&gt; instead of Country opts that field into lazy
+ * loading: loading the referencing Model then only reads the referenced id,
+ * and reference cycles no longer load the same Models over and over.
+ * 
+ * A LazyReference is not thread-safe to load; it is meant to be used by the
+ * thread that loaded its referencing Model.
+ */
+public final class LazyReference<T> {
+    private final Class<?> clazz;
+    private final Long id;
+    private T model;
+    private boolean loaded;
+
+    /**
+     * Reference the given Model, which need not be saved yet.
+     */
+    public LazyReference(final T model) {
+        if (model == null) {
+            throw new JOhmException(
+                    "A LazyReference must reference a Model, leave the field null instead");
+        }
+        this.clazz = model.getClass();
+        this.id = null;
+        this.model = model;
+        this.loaded = true;
+    }
+
+    LazyReference(final Class<?> clazz, final Long id) {
+        this.clazz = clazz;
+        this.id = id;
+    }
+
+    /**
+     * A reference whose Model has been loaded already, null if it does not
+     * exist.
+     */
+    LazyReference(final Class<?> clazz, final Long id, final T model) {
+        this.clazz = clazz;
+        this.id = id;
+        this.model = model;
+        this.loaded = true;
+    }
+
+    /**
+     * The referenced Model, loaded on first access. Returns null if the
+     * referenced Model does not exist anymore.
+     */
+    public T get() {
+        if (!loaded) {
+            model = JOhm.<T> get(clazz, id);
+            loaded = true;
+        }
+        return model;
+    }
+
+    /**
+     * The id of the referenced Model, without loading it.
+     */
+    public Long getId() {
+        if (id != null) {
+            return id;
+        }
+        return model == null ? null : JOhmUtils.getId(model);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+}
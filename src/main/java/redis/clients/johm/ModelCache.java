@@ -0,0 +1,417 @@
+package redis.clients.johm;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ModelCache is an optional process-wide cache of what is stored for Models,
+ * installed with JOhm.setModelCache(). It holds the hash and array elements of
+ * up to maxSize Models, keyed by class and id, and evicts the least recently
+ * used beyond that. get, getAll, find and iterateAll serve the Models it holds
+ * without reading them from Redis; each load still builds a fresh instance, so
+ * cached state is never shared between callers.
+ *
+ * Entries expire after the TTL of their Model class, or the default TTL if the
+ * class has none; a TTL of 0 never expires. save and delete in this JVM drop
+ * the entries of the Models they write. Writes from other processes are only
+ * seen once an entry expires, unless a CacheInvalidator relays them.
+ *
+ * With negative caching enabled, ids found missing are remembered as well, so
+ * repeated lookups of deleted or never saved Models skip Redis until the entry
+ * expires or the Model is saved. A Model class can also be given a Bloom filter
+ * of its ids, once seeded with JOhm.seedBloomFilter(), that answers
+ * "definitely absent" for most ids never saved without any cache entry.
+ * Filters only learn about saves made in this JVM or relayed by a
+ * CacheInvalidator; without one, Models created by other processes may be
+ * reported missing.
+ *
+ * A read that races a write must not cache what it read, which may be older
+ * than what was written. Each key has a generation that writes bump; loaders
+ * take it before reading and what they read is only cached if it has not
+ * changed since. Generations are striped, so a write may also keep the
+ * reads of a few unrelated keys from being cached.
+ */
+public final class ModelCache {
+    private static final Entry ABSENT = new Entry(
+            Collections.<String, String> emptyMap(), Collections
+                    .<List<String>> emptyList(), 0, true);
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final int maxSize;
+    private final long defaultTtl;
+    private final Map<Class<?>, Long> ttls = new HashMap<Class<?>, Long>();
+    private final LinkedHashMap<String, Entry> entries;
+    // keyed by the class prefix of Model keys
+    private final Map<String, IdFilter> filters = new HashMap<String, IdFilter>();
+    private final long[] generations = new long[GENERATION_STRIPES];
+    private boolean negativeCaching;
+    private volatile CacheInvalidator invalidator;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long negativeHits;
+
+    /**
+     * A cache of up to maxSize Models that never expire.
+     */
+    public ModelCache(final int maxSize) {
+        this(maxSize, 0);
+    }
+
+    /**
+     * @param maxSize
+     *            the number of Models beyond which the least recently used are
+     *            evicted
+     * @param defaultTtl
+     *            milliseconds after which an entry expires, 0 to never expire
+     */
+    public ModelCache(final int maxSize, final long defaultTtl) {
+        if (maxSize <= 0) {
+            throw new JOhmException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.defaultTtl = defaultTtl;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            protected boolean removeEldestEntry(
+                    final Map.Entry<String, ModelCache.Entry> eldest) {
+                if (size() > ModelCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Expire the entries of the given Model class after ttl milliseconds, 0
+     * to never expire them.
+     */
+    public synchronized void setTtl(final Class<?> clazz, final long ttl) {
+        ttls.put(clazz, ttl);
+    }
+
+    /**
+     * Remember ids found missing, so they are not looked up again until their
+     * entry expires or the Model is saved.
+     */
+    public synchronized void setNegativeCaching(final boolean enabled) {
+        negativeCaching = enabled;
+        if (!enabled) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().isMissing()) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Keep a Bloom filter of the ids of the given Model class, sized for
+     * expectedModels ids at the given false positive rate. It is ignored
+     * until JOhm.seedBloomFilter() has seeded it from Redis.
+     */
+    public synchronized void setBloomFilter(final Class<?> clazz,
+            final int expectedModels, final double falsePositiveRate) {
+        filters.put(new Nest<Object>(clazz).key(), new IdFilter(
+                expectedModels, falsePositiveRate));
+    }
+
+    /**
+     * Drop the entry of the given Model, if any.
+     */
+    public void invalidate(final Class<?> clazz, final long id) {
+        remove(new Nest<Object>(clazz).cat(id).key());
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        for (int i = 0; i < generations.length; i++) {
+            generations[i]++;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * The number of lookups served from this cache.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * The number of lookups that had to read Redis, including those of
+     * expired entries.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * The number of hits that were ids remembered as missing.
+     */
+    public synchronized long getNegativeHits() {
+        return negativeHits;
+    }
+
+    /**
+     * The number of lookups of the given Model class that its Bloom filter
+     * answered as definitely absent, without reading Redis.
+     */
+    public synchronized long getBloomRejections(final Class<?> clazz) {
+        IdFilter filter = filters.get(new Nest<Object>(clazz).key());
+        return filter == null ? 0 : filter.getRejections();
+    }
+
+    /**
+     * The number of ids of the given Model class its Bloom filter let through
+     * that turned out to be missing.
+     */
+    public synchronized long getBloomFalsePositives(final Class<?> clazz) {
+        IdFilter filter = filters.get(new Nest<Object>(clazz).key());
+        return filter == null ? 0 : filter.getFalsePositives();
+    }
+
+    /**
+     * The observed false positive rate of the Bloom filter of the given Model
+     * class: the share of missing ids it let through, 0 before any was looked
+     * up.
+     */
+    public synchronized double getBloomFalsePositiveRate(final Class<?> clazz) {
+        IdFilter filter = filters.get(new Nest<Object>(clazz).key());
+        if (filter == null) {
+            return 0;
+        }
+        long missing = filter.getRejections() + filter.getFalsePositives();
+        return missing == 0 ? 0 : (double) filter.getFalsePositives()
+                / missing;
+    }
+
+    /**
+     * The number of entries evicted to stay within maxSize.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * The number of entries dropped because their TTL passed.
+     */
+    public synchronized long getExpirations() {
+        return expirations;
+    }
+
+    /**
+     * The entry for the given Model key, or null if there is none or it has
+     * expired. Models known to be missing get an entry with an empty hash.
+     */
+    synchronized Entry get(final String key) {
+        IdFilter filter = filter(key);
+        if (filter != null && filter.isSeeded()
+                && !filter.mightContain(id(key))) {
+            filter.rejected();
+            return ABSENT;
+        }
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt != 0
+                && System.currentTimeMillis() >= entry.expiresAt) {
+            entries.remove(key);
+            expirations++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+            if (entry.isMissing()) {
+                negativeHits++;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Record that the Model of the given key was read and found missing,
+     * unless it was written since the given generation was taken.
+     */
+    synchronized void putMissing(final String key, final long generation,
+            final Class<?> clazz) {
+        IdFilter filter = filter(key);
+        if (filter != null && filter.isSeeded()) {
+            filter.falsePositive();
+        }
+        if (negativeCaching && generations[stripe(key)] == generation) {
+            Map<String, String> hash = Collections.emptyMap();
+            List<List<String>> arrays = Collections.emptyList();
+            entries.put(key, new Entry(hash, arrays, expiresAt(clazz), true));
+        }
+    }
+
+    /**
+     * Whether the given Model class has a Bloom filter that is not seeded yet.
+     */
+    synchronized boolean isUnseeded(final Class<?> clazz) {
+        IdFilter filter = filters.get(new Nest<Object>(clazz).key());
+        return filter != null && !filter.isSeeded();
+    }
+
+    /**
+     * Add some of the ids stored for the given Model class to its Bloom
+     * filter while it is being seeded.
+     */
+    synchronized void seed(final Class<?> clazz, final List<Long> ids) {
+        IdFilter filter = filters.get(new Nest<Object>(clazz).key());
+        if (filter == null || filter.isSeeded()) {
+            return;
+        }
+        for (long id : ids) {
+            filter.add(id);
+        }
+    }
+
+    /**
+     * Have the Bloom filter of the given Model class answer lookups, once all
+     * the ids stored for it were added. Ids added meanwhile by mayExist() are
+     * kept.
+     */
+    synchronized void seeded(final Class<?> clazz) {
+        IdFilter filter = filters.get(new Nest<Object>(clazz).key());
+        if (filter != null) {
+            filter.setSeeded();
+        }
+    }
+
+    /**
+     * Add the Model of the given key to its Bloom filter before it is
+     * written, so the filter never answers "definitely absent" for it.
+     */
+    synchronized void mayExist(final String key) {
+        IdFilter filter = filter(key);
+        if (filter != null) {
+            filter.add(id(key));
+        }
+    }
+
+    /**
+     * The generation of the given Model key, to take before reading the
+     * Model and pass to put() with what was read.
+     */
+    synchronized long generation(final String key) {
+        return generations[stripe(key)];
+    }
+
+    /**
+     * Cache what was read for the Model of the given key, unless it was
+     * written since the given generation was taken.
+     */
+    synchronized void put(final String key, final long generation,
+            final Class<?> clazz, final Map<String, String> hash,
+            final List<List<String>> arrays) {
+        if (generations[stripe(key)] == generation) {
+            entries.put(key, new Entry(hash, arrays, expiresAt(clazz), false));
+        }
+    }
+
+    synchronized void remove(final String key) {
+        entries.remove(key);
+        generations[stripe(key)]++;
+    }
+
+    /**
+     * Drop the entry of a Model another process has written, which may have
+     * just been created.
+     */
+    synchronized void relayed(final String key) {
+        remove(key);
+        mayExist(key);
+    }
+
+    private long expiresAt(final Class<?> clazz) {
+        Long ttl = ttls.get(clazz);
+        long expiresIn = ttl == null ? defaultTtl : ttl;
+        return expiresIn == 0 ? 0 : System.currentTimeMillis() + expiresIn;
+    }
+
+    private IdFilter filter(final String key) {
+        if (filters.isEmpty()) {
+            return null;
+        }
+        int separator = key.lastIndexOf(':');
+        return separator < 0 ? null : filters.get(key.substring(0, separator));
+    }
+
+    private static int stripe(final String key) {
+        return key.hashCode() & (GENERATION_STRIPES - 1);
+    }
+
+    private static long id(final String key) {
+        return Long.parseLong(key.substring(key.lastIndexOf(':') + 1));
+    }
+
+    /**
+     * Drop the entry of a Model this process has written, and have the other
+     * processes drop theirs if a CacheInvalidator is started.
+     */
+    void written(final String key) {
+        remove(key);
+        CacheInvalidator current = invalidator;
+        if (current != null) {
+            current.queue(key);
+        }
+    }
+
+    void setInvalidator(final CacheInvalidator invalidator) {
+        this.invalidator = invalidator;
+    }
+
+    static final class Entry {
+        private final Map<String, String> hash;
+        private final List<List<String>> arrays;
+        // 0 if the entry never expires
+        private final long expiresAt;
+        private final boolean missing;
+
+        private Entry(final Map<String, String> hash,
+                final List<List<String>> arrays, final long expiresAt,
+                final boolean missing) {
+            this.hash = Collections.unmodifiableMap(hash);
+            this.arrays = Collections.unmodifiableList(arrays);
+            this.expiresAt = expiresAt;
+            this.missing = missing;
+        }
+
+        /**
+         * Whether the Model is known not to be stored, in which case the hash
+         * is empty.
+         */
+        boolean isMissing() {
+            return missing;
+        }
+
+        /**
+         * The attributes and references as stored in the Model's hash.
+         */
+        Map<String, String> getHash() {
+            return hash;
+        }
+
+        /**
+         * The stored elements of each of the Model's arrays, in the order of
+         * ModelMetadata.getArrays().
+         */
+        List<List<String>> getArrays() {
+            return arrays;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package redis.clients.johm;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * ModelIterator streams over all stored Models of a class. It walks the ids
+ * from 1 up to the highest one the IdGenerator had allocated when the iterator
+ * was created, batchSize ids at a time: each range is checked against the
+ * class's all set with pipelined SISMEMBERs, and the ids in it are loaded with
+ * a ModelLoader. Ids never used or whose Model has been deleted are skipped,
+ * whatever IdGenerator allocated them. Only one range of ids and one batch of
+ * Models are held at any time, however many Models there are.
+ * 
+ * Models saved after the iterator was created may or may not be visited.
+ */
+final class ModelIterator<T> implements Iterator<T> {
+    private final Class<?> clazz;
+    private final int batchSize;
+    private final Backend backend;
+    private final ChangeTracker changeTracker;
+    private final ModelCache modelCache;
+    private final Nest<Object> all;
+    private final long maxId;
+    // the first id not walked yet
+    private long nextId = 1;
+    private List<Object> batch = new ArrayList<Object>();
+    private int position;
+
+    ModelIterator(final Class<?> clazz, final int batchSize,
+            final Backend backend, final ChangeTracker changeTracker,
+            final ModelCache modelCache, final IdGenerator idGenerator) {
+        this.clazz = clazz;
+        this.batchSize = batchSize;
+        this.backend = backend;
+        this.changeTracker = changeTracker;
+        this.modelCache = modelCache;
+        this.all = new Nest<Object>(clazz).cat("all").fork();
+        all.setBackend(backend);
+        this.maxId = idGenerator.maxId(clazz, backend);
+    }
+
+    public boolean hasNext() {
+        while (position == batch.size() && nextId <= maxId) {
+            loadBatch();
+        }
+        return position < batch.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return (T) batch.get(position++);
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private void loadBatch() {
+        final long from = nextId;
+        final long to = Math.min(maxId, from + batchSize - 1);
+        nextId = to + 1;
+        Session session = Session.join();
+        try {
+            List<Object> replies = all.pipelined(new CommandBlock() {
+                public void execute() {
+                    for (long id = from; id <= to; id++) {
+                        sismember(all.keyBytes(), String.valueOf(id));
+                    }
+                }
+            });
+            List<Long> batchIds = new ArrayList<Long>();
+            for (int i = 0; i < replies.size(); i++) {
+                if (((Long) replies.get(i)) == 1) {
+                    batchIds.add(from + i);
+                }
+            }
+            ModelLoader loader = new ModelLoader(backend, changeTracker,
+                    modelCache, batchSize);
+            batch = loader.load(clazz, batchIds);
+        } finally {
+            session.leave();
+        }
+        position = 0;
+    }
+}
@@ -0,0 +1,465 @@
+package redis.clients.johm;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import redis.clients.johm.JOhmUtils.Convertor;
+import redis.clients.johm.JOhmUtils.JOhmCollectionDataType;
+import redis.clients.johm.collections.RedisArray;
+import redis.clients.johm.collections.RedisList;
+import redis.clients.johm.collections.RedisMap;
+import redis.clients.johm.collections.RedisSet;
+import redis.clients.johm.collections.RedisSortedSet;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * ModelLoader loads a batch of Models in waves. Each wave reads the hashes and
+ * arrays of all Models requested so far, along with the collections their
+ * FetchPlan names, in pipelines of up to batchSize Models each; the Models
+ * they reference are requested for the next wave. Once no more Models are
+ * pending, references, arrays and collections are wired up from the instances
+ * that were loaded.
+ * 
+ * Every Model is loaded at most once per ModelLoader, so a Model referenced
+ * several times within a batch is shared by its referrers. A Model reached
+ * through several paths before it is loaded is loaded with the union of their
+ * plans. Models the calling thread's UnitOfWork knows already are not loaded
+ * at all but reused as they are, and the Models loaded are added to it.
+ */
+final class ModelLoader {
+    private final Backend backend;
+    private final ChangeTracker changeTracker;
+    private final ModelCache modelCache;
+    private final int batchSize;
+    private final UnitOfWork unitOfWork = UnitOfWork.current();
+    // the instances of requested Models that the unit of work knew already
+    private final Map<String, Object> reused = new HashMap<String, Object>();
+    private final Map<String, PendingModel> requested = new HashMap<String, PendingModel>();
+    private final List<PendingModel> found = new ArrayList<PendingModel>();
+    private List<PendingModel> pending = new ArrayList<PendingModel>();
+
+    /**
+     * @param changeTracker
+     *            where loaded Models are snapshot, or null if changes are not
+     *            tracked
+     * @param modelCache
+     *            where stored Models are looked up before reading them, or
+     *            null if they are not cached
+     */
+    ModelLoader(final Backend backend, final ChangeTracker changeTracker,
+            final ModelCache modelCache, final int batchSize) {
+        this.backend = backend;
+        this.changeTracker = changeTracker;
+        this.modelCache = modelCache;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Load the Models of the given class and ids, in the order of the ids.
+     * Ids no Model is stored for are skipped.
+     */
+    List<Object> load(final Class<?> clazz, final Collection<Long> ids) {
+        return load(clazz, ids, FetchPlan.NONE);
+    }
+
+    List<Object> load(final Class<?> clazz, final Collection<Long> ids,
+            final FetchPlan plan) {
+        List<Object> results = new ArrayList<Object>(ids.size());
+        for (Object model : loadInOrder(clazz, ids, plan)) {
+            if (model != null) {
+                results.add(model);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Load the Models of the given class and ids, in the order of the ids,
+     * with null in place of ids no Model is stored for.
+     */
+    List<Object> loadInOrder(final Class<?> clazz, final Collection<Long> ids) {
+        return loadInOrder(clazz, ids, FetchPlan.NONE);
+    }
+
+    List<Object> loadInOrder(final Class<?> clazz,
+            final Collection<Long> ids, final FetchPlan plan) {
+        for (Long id : ids) {
+            request(clazz, id, plan);
+        }
+        while (!pending.isEmpty()) {
+            loadWave();
+        }
+        for (PendingModel model : found) {
+            wire(model);
+            if (unitOfWork != null) {
+                unitOfWork.put(model.key, model.instance);
+            }
+        }
+
+        List<Object> results = new ArrayList<Object>(ids.size());
+        for (Long id : ids) {
+            results.add(instanceOf(clazz, id));
+        }
+        return results;
+    }
+
+    private void request(final Class<?> clazz, final Long id,
+            final FetchPlan plan) {
+        String key = new Nest<Object>(clazz).cat(id).key();
+        if (reused.containsKey(key)) {
+            return;
+        }
+        PendingModel model = requested.get(key);
+        if (model == null && unitOfWork != null) {
+            Object known = unitOfWork.get(key);
+            if (known != null) {
+                reused.put(key, known);
+                return;
+            }
+        }
+        if (model == null) {
+            model = new PendingModel(clazz, id, key, plan);
+            requested.put(key, model);
+            pending.add(model);
+        } else if (!model.read) {
+            model.plan = model.plan.merge(plan);
+        }
+    }
+
+    private Object instanceOf(final Class<?> clazz, final Long id) {
+        String key = new Nest<Object>(clazz).cat(id).key();
+        Object known = reused.get(key);
+        if (known != null) {
+            return known;
+        }
+        PendingModel model = requested.get(key);
+        return model != null && model.hash != null ? model.instance : null;
+    }
+
+    private void loadWave() {
+        List<PendingModel> wave = pending;
+        pending = new ArrayList<PendingModel>();
+        for (int from = 0; from < wave.size(); from += batchSize) {
+            loadBatch(wave.subList(from, Math.min(from + batchSize, wave
+                    .size())));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loadBatch(final List<PendingModel> wave) {
+        boolean reads = false;
+        for (PendingModel model : wave) {
+            model.read();
+            if (modelCache != null) {
+                model.cached = modelCache.get(model.key);
+                if (model.cached == null) {
+                    model.generation = modelCache.generation(model.key);
+                }
+                if (model.cached != null && model.cached.isMissing()) {
+                    model.collectionFields.clear();
+                    model.collections.clear();
+                }
+            }
+            reads |= model.cached == null || !model.collections.isEmpty();
+        }
+        List<Object> replies = Collections.emptyList();
+        if (reads) {
+            Nest<Object> nest = new Nest<Object>();
+            nest.setBackend(backend);
+            replies = nest.pipelined(new CommandBlock() {
+                public void execute() {
+                    for (PendingModel model : wave) {
+                        if (model.cached == null) {
+                            hgetAll(SafeEncoder.encode(model.key));
+                            for (RedisArray<Object> redisArray : model.redisArrays) {
+                                redisArray.readStored(this);
+                            }
+                        }
+                        for (Object collection : model.collections) {
+                            readStored(collection, this);
+                        }
+                    }
+                }
+            });
+        }
+
+        int reply = 0;
+        for (PendingModel model : wave) {
+            Map<String, String> hash;
+            // whether the attributes were set straight from the reply
+            boolean mapped = false;
+            if (model.cached != null) {
+                hash = model.cached.getHash();
+                model.storedArrays.addAll(model.cached.getArrays());
+            } else {
+                List<byte[]> flattened = (List<byte[]>) replies.get(reply++);
+                ModelMapper<Object> mapper = model.metadata.getMapper();
+                if (changeTracker == null && modelCache == null
+                        && mapper instanceof BinaryModelMapper
+                        && !flattened.isEmpty()) {
+                    // nothing needs the decoded attributes, only references
+                    // are decoded
+                    hash = new HashMap<String, String>();
+                    ((BinaryModelMapper<Object>) mapper).fromBinaryHash(
+                            flattened, model.instance, hash);
+                    mapped = true;
+                } else {
+                    hash = JOhmUtils.toHash(flattened);
+                }
+                for (int i = 0; i < model.redisArrays.size(); i++) {
+                    model.storedArrays.add(JOhmUtils.toStrings(replies
+                            .get(reply++)));
+                }
+                if (modelCache != null) {
+                    if (hash.isEmpty()) {
+                        modelCache.putMissing(model.key, model.generation,
+                                model.clazz);
+                    } else {
+                        modelCache.put(model.key, model.generation,
+                                model.clazz, hash, model.storedArrays);
+                    }
+                }
+            }
+            for (Object collection : model.collections) {
+                Object stored = replies.get(reply++);
+                model.storedCollections
+                        .add(collection instanceof RedisMap ? JOhmUtils
+                                .toHash(stored) : JOhmUtils.toStrings(stored));
+            }
+            if (hash.isEmpty() && !mapped) {
+                continue;
+            }
+            model.hash = hash;
+            found.add(model);
+
+            ModelMetadata metadata = model.metadata;
+            FetchPlan plan = model.plan;
+            if (!mapped) {
+                metadata.getMapper().fromHash(hash, model.instance);
+            }
+            for (Field field : metadata.getReferences()) {
+                String referenceId = hash.get(metadata.getKeyName(field));
+                if (referenceId != null
+                        && (!metadata.isLazyReference(field) || plan
+                                .includes(field.getName()))) {
+                    request(metadata.getReferenceClazz(field), Long
+                            .valueOf(referenceId), plan.get(field.getName()));
+                }
+            }
+            for (int i = 0; i < model.redisArrays.size(); i++) {
+                Field field = metadata.getArrays().get(i);
+                requestElements(metadata.getArray(field).of(),
+                        model.storedArrays.get(i), plan.get(field.getName()));
+            }
+            for (int i = 0; i < model.collections.size(); i++) {
+                Field field = model.collectionFields.get(i);
+                FetchPlan elementPlan = plan.get(field.getName());
+                Annotation annotation = metadata.getCollection(field);
+                Object stored = model.storedCollections.get(i);
+                if (annotation instanceof CollectionMap) {
+                    Map<String, String> entries = (Map<String, String>) stored;
+                    requestElements(((CollectionMap) annotation).key(),
+                            entries.keySet(), elementPlan);
+                    requestElements(((CollectionMap) annotation).value(),
+                            entries.values(), elementPlan);
+                } else {
+                    requestElements(elementClazz(annotation),
+                            (List<String>) stored, elementPlan);
+                }
+            }
+        }
+    }
+
+    private void requestElements(final Class<?> elementClazz,
+            final Collection<String> stored, final FetchPlan plan) {
+        if (isModel(elementClazz)) {
+            for (String elementId : stored) {
+                if (!JOhmUtils.isNullOrEmpty(elementId)) {
+                    request(elementClazz, Long.valueOf(elementId), plan);
+                }
+            }
+        }
+    }
+
+    private void wire(final PendingModel model) {
+        ModelMetadata metadata = model.metadata;
+        for (Field field : metadata.getReferences()) {
+            String referenceId = model.hash.get(metadata.getKeyName(field));
+            if (referenceId == null) {
+                continue;
+            }
+            Class<?> referenceClazz = metadata.getReferenceClazz(field);
+            Long id = Long.valueOf(referenceId);
+            Object reference;
+            if (!metadata.isLazyReference(field)) {
+                reference = instanceOf(referenceClazz, id);
+            } else if (model.plan.includes(field.getName())) {
+                reference = new LazyReference<Object>(referenceClazz, id,
+                        instanceOf(referenceClazz, id));
+            } else {
+                reference = new LazyReference<Object>(referenceClazz, id);
+            }
+            metadata.getAccessor(field).set(model.instance, reference);
+        }
+        for (int i = 0; i < model.redisArrays.size(); i++) {
+            Field field = metadata.getArrays().get(i);
+            Array annotation = metadata.getArray(field);
+            Class<?> elementClazz = annotation.of();
+            List<String> storedValues = model.storedArrays.get(i);
+            Object[] elements = (Object[]) java.lang.reflect.Array.newInstance(
+                    elementClazz, annotation.length());
+            for (int j = 0; j < elements.length && j < storedValues.size(); j++) {
+                String value = storedValues.get(j);
+                if (JOhmUtils.isNullOrEmpty(value)) {
+                    continue;
+                }
+                elements[j] = element(elementClazz, value);
+            }
+            metadata.getAccessor(field).set(model.instance, elements);
+        }
+        for (int i = 0; i < model.collections.size(); i++) {
+            preload(model.collections.get(i), metadata.getCollection(model
+                    .collectionFields.get(i)), model.storedCollections.get(i));
+        }
+        if (changeTracker != null) {
+            changeTracker.putLoaded(model.instance, metadata, model.hash);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void preload(final Object collection, final Annotation annotation,
+            final Object stored) {
+        if (collection instanceof RedisMap) {
+            CollectionMap map = (CollectionMap) annotation;
+            Map<Object, Object> entries = new HashMap<Object, Object>();
+            for (Map.Entry<String, String> entry : ((Map<String, String>) stored)
+                    .entrySet()) {
+                entries.put(element(map.key(), entry.getKey()), element(map
+                        .value(), entry.getValue()));
+            }
+            ((RedisMap<Object, Object>) collection).preload(entries);
+            return;
+        }
+        Class<?> elementClazz = elementClazz(annotation);
+        List<Object> elements = new ArrayList<Object>();
+        for (String value : (List<String>) stored) {
+            elements.add(element(elementClazz, value));
+        }
+        if (collection instanceof RedisList) {
+            ((RedisList<Object>) collection).preload(elements);
+        } else if (collection instanceof RedisSortedSet) {
+            ((RedisSortedSet<Object>) collection)
+                    .preload(new LinkedHashSet<Object>(elements));
+        } else {
+            ((RedisSet<Object>) collection).preload(new HashSet<Object>(
+                    elements));
+        }
+    }
+
+    private Object element(final Class<?> elementClazz, final String value) {
+        return isModel(elementClazz) ? instanceOf(elementClazz, Long
+                .valueOf(value)) : Convertor.convert(elementClazz, value);
+    }
+
+    private static boolean isModel(final Class<?> clazz) {
+        return JOhmUtils.detectJOhmCollectionDataType(clazz) == JOhmCollectionDataType.MODEL;
+    }
+
+    /**
+     * The element class of a list, set or sorted set collection.
+     */
+    private static Class<?> elementClazz(final Annotation annotation) {
+        if (annotation instanceof CollectionList) {
+            return ((CollectionList) annotation).of();
+        }
+        if (annotation instanceof CollectionSortedSet) {
+            return ((CollectionSortedSet) annotation).of();
+        }
+        return ((CollectionSet) annotation).of();
+    }
+
+    private static boolean isFetchable(final Object collection) {
+        return collection instanceof RedisList
+                || collection instanceof RedisSet
+                || collection instanceof RedisSortedSet
+                || collection instanceof RedisMap;
+    }
+
+    private static void readStored(final Object collection,
+            final Pipeline commands) {
+        if (collection instanceof RedisList) {
+            ((RedisList<?>) collection).readStored(commands);
+        } else if (collection instanceof RedisSet) {
+            ((RedisSet<?>) collection).readStored(commands);
+        } else if (collection instanceof RedisSortedSet) {
+            ((RedisSortedSet<?>) collection).readStored(commands);
+        } else {
+            ((RedisMap<?, ?>) collection).readStored(commands);
+        }
+    }
+
+    private final class PendingModel {
+        private final Class<?> clazz;
+        private final String key;
+        private final ModelMetadata metadata;
+        private final Object instance;
+        private final List<RedisArray<Object>> redisArrays = new ArrayList<RedisArray<Object>>();
+        private final List<List<String>> storedArrays = new ArrayList<List<String>>();
+        private final List<Field> collectionFields = new ArrayList<Field>();
+        private final List<Object> collections = new ArrayList<Object>();
+        // a List<String>, or a Map<String, String> for a map, per collection
+        private final List<Object> storedCollections = new ArrayList<Object>();
+        private FetchPlan plan;
+        // whether the Model's read has been issued, which fixes its plan
+        private boolean read;
+        // what the cache holds for the Model, if anything
+        private ModelCache.Entry cached;
+        // the cache generation of the Model, taken before it is read
+        private long generation;
+        // null until found in Redis; without its attributes if they were
+        // mapped straight from the reply
+        private Map<String, String> hash;
+
+        @SuppressWarnings("unchecked")
+        private PendingModel(final Class<?> clazz, final Long id,
+                final String key, final FetchPlan plan) {
+            this.clazz = clazz;
+            this.key = key;
+            this.plan = plan;
+            this.metadata = ModelMetadata.forClass(clazz);
+            this.instance = metadata.getMapper().newInstance();
+            metadata.setId(instance, id);
+
+            Nest<Object> nest = new Nest<Object>(clazz);
+            nest.setBackend(backend);
+            JOhmUtils.initCollections(instance, nest);
+            for (Field field : metadata.getArrays()) {
+                Array annotation = metadata.getArray(field);
+                redisArrays.add(new RedisArray<Object>(annotation.length(),
+                        annotation.of(), nest, field, instance));
+            }
+        }
+
+        private void read() {
+            read = true;
+            for (Field field : metadata.getCollections()) {
+                if (plan.includes(field.getName())) {
+                    Object collection = metadata.getAccessor(field).get(
+                            instance);
+                    if (isFetchable(collection)) {
+                        collectionFields.add(field);
+                        collections.add(collection);
+                    }
+                }
+            }
+        }
+    }
+}
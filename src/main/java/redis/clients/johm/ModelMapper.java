@@ -0,0 +1,36 @@
+package redis.clients.johm;
+
+import java.util.Map;
+
+/**
+ * ModelMapper maps the attributes of a Model to and from the Redis hash it is
+ * persisted as, and creates new instances of the Model when it is loaded.
+ * 
+ * When a Model class Foo is first used, JOhm looks for a class named
+ * Foo_JOhmMapper next to it. If it exists it must implement ModelMapper and
+ * have a public no-arg constructor, and JOhm then maps Foo through it without
+ * reflecting over Foo's attributes. Otherwise JOhm falls back to its
+ * reflection based mapper. References, collections and arrays are always
+ * wired by JOhm itself. JOhm does not generate mappers; they are written by
+ * hand, or by whatever generator a build adds.
+ * 
+ * A mapper is shared by all threads and should keep no per-call state.
+ */
+public interface ModelMapper<T> {
+    /**
+     * Create a new, empty instance of the Model.
+     */
+    T newInstance();
+
+    /**
+     * Put each non-null @Attribute of the model into the hash, keyed by the
+     * attribute's name.
+     */
+    void toHash(T model, Map<String, String> hash);
+
+    /**
+     * Set each @Attribute of the model from the hash. Attributes missing from
+     * the hash get the defaults of JOhmUtils.Convertor.
+     */
+    void fromHash(Map<String, String> hash, T model);
+}
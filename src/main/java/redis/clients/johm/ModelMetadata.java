@@ -0,0 +1,424 @@
+package redis.clients.johm;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import redis.clients.util.SafeEncoder;
+
+/**
+ * ModelMetadata is the immutable, per-class description of a JOhm Model. It is
+ * built by reflecting over the Model's class hierarchy exactly once, validated
+ * at that time and then cached for the lifetime of the class so that the
+ * mapping hot paths never have to scan fields or look up annotations again.
+ */
+public final class ModelMetadata {
+    /**
+     * Suffix of the name of the ModelMapper class JOhm looks for next to each
+     * Model class.
+     */
+    public static final String MAPPER_SUFFIX = "_JOhmMapper";
+
+    private static final ConcurrentMap<Class<?>, ModelMetadata> registry = new ConcurrentHashMap<Class<?>, ModelMetadata>();
+    // Model classes known to have no mapper class, which outlive the registry
+    // so that rebuilding their metadata does not look the class up again
+    private static final ConcurrentMap<Class<?>, Boolean> withoutMapper = new ConcurrentHashMap<Class<?>, Boolean>();
+    private static final FieldAccessorFactory reflectionAccessorFactory = new ReflectionFieldAccessorFactory();
+    private static volatile FieldAccessorFactory accessorFactory = reflectionAccessorFactory;
+
+    private final Class<?> modelClazz;
+    private final String modelName;
+    private final Field idField;
+    private final List<Field> allFields;
+    private final List<Field> attributes;
+    private final List<Field> references;
+    private final List<Field> indexed;
+    private final List<Field> collections;
+    private final List<Field> arrays;
+    private final Set<Field> indexedFields;
+    private final Set<Field> referenceFields;
+    private final Set<Field> lazyReferences;
+    private final Map<Field, Class<?>> referenceClazzes;
+    private final Map<Field, String> keyNames;
+    // the UTF-8 bytes of the hash field names of attributes and references
+    private final Map<String, byte[]> encodedKeyNames;
+    private final Map<String, Field> fieldsByName;
+    private final Map<Field, Annotation> collectionAnnotations;
+    private final Map<Field, Array> arrayAnnotations;
+    private final Map<Field, FieldAccessor> accessors;
+    private final ModelMapper<Object> mapper;
+
+    /**
+     * Lookup the metadata of the given Model class, building and caching it on
+     * first use.
+     */
+    public static ModelMetadata forClass(final Class<?> modelClazz) {
+        ModelMetadata metadata = registry.get(modelClazz);
+        if (metadata == null) {
+            metadata = new ModelMetadata(modelClazz);
+            ModelMetadata existing = registry.putIfAbsent(modelClazz, metadata);
+            if (existing != null) {
+                metadata = existing;
+            }
+        }
+        return metadata;
+    }
+
+    public static ModelMetadata forModel(final Object model) {
+        return forClass(model.getClass());
+    }
+
+    /**
+     * Install the factory used to create the FieldAccessors of Models. Since
+     * accessors are created when metadata is built, this drops all cached
+     * metadata.
+     */
+    static void setFieldAccessorFactory(final FieldAccessorFactory factory) {
+        accessorFactory = factory == null ? reflectionAccessorFactory
+                : factory;
+        registry.clear();
+    }
+
+    private ModelMetadata(final Class<?> modelClazz) {
+        JOhmUtils.Validator.checkValidModelClazz(modelClazz);
+        this.modelClazz = modelClazz;
+        this.modelName = modelClazz.getSimpleName();
+
+        Field id = null;
+        List<Field> attributes = new ArrayList<Field>();
+        List<Field> references = new ArrayList<Field>();
+        List<Field> indexed = new ArrayList<Field>();
+        List<Field> collections = new ArrayList<Field>();
+        List<Field> arrays = new ArrayList<Field>();
+        Set<Field> indexedFields = new HashSet<Field>();
+        Map<Field, String> keyNames = new HashMap<Field, String>();
+        Map<String, Field> fieldsByName = new HashMap<String, Field>();
+        Map<Field, Annotation> collectionAnnotations = new HashMap<Field, Annotation>();
+        Map<Field, Array> arrayAnnotations = new LinkedHashMap<Field, Array>();
+        Map<Field, FieldAccessor> accessors = new HashMap<Field, FieldAccessor>();
+        Set<Field> lazyReferences = new HashSet<Field>();
+        Map<Field, Class<?>> referenceClazzes = new HashMap<Field, Class<?>>();
+
+        List<Field> allFields = JOhmUtils.gatherAllFields(modelClazz);
+        for (Field field : allFields) {
+            field.setAccessible(true);
+            accessors.put(field, createAccessor(field));
+            if (!fieldsByName.containsKey(field.getName())) {
+                // subclass fields shadow those of their superclasses
+                fieldsByName.put(field.getName(), field);
+            }
+            if (field.isAnnotationPresent(Id.class)) {
+                JOhmUtils.Validator.checkValidIdType(field);
+                if (id == null) {
+                    id = field;
+                }
+                continue;
+            }
+            JOhmUtils.Validator.checkAttributeReferenceIndexRules(field);
+            boolean isIndexed = field.isAnnotationPresent(Indexed.class);
+            if (isIndexed) {
+                indexedFields.add(field);
+            }
+            if (JOhmUtils.detectJOhmCollection(field)) {
+                JOhmUtils.Validator.checkValidCollection(field);
+                collections.add(field);
+                collectionAnnotations.put(field, collectionAnnotation(field));
+            } else if (field.isAnnotationPresent(Array.class)) {
+                arrays.add(field);
+                arrayAnnotations.put(field, field.getAnnotation(Array.class));
+            }
+            if (field.isAnnotationPresent(Attribute.class)) {
+                attributes.add(field);
+                keyNames.put(field, field.getName());
+            } else if (field.isAnnotationPresent(Reference.class)) {
+                references.add(field);
+                keyNames.put(field, JOhmUtils.getReferenceKeyName(field));
+                if (field.getType().equals(LazyReference.class)) {
+                    lazyReferences.add(field);
+                    referenceClazzes.put(field, lazyReferenceClazz(field));
+                } else {
+                    referenceClazzes.put(field, field.getType());
+                }
+            } else {
+                keyNames.put(field, field.getName());
+                continue;
+            }
+            if (isIndexed) {
+                indexed.add(field);
+            }
+        }
+
+        this.idField = id;
+        this.allFields = allFields;
+        this.attributes = Collections.unmodifiableList(attributes);
+        this.references = Collections.unmodifiableList(references);
+        this.indexed = Collections.unmodifiableList(indexed);
+        this.collections = Collections.unmodifiableList(collections);
+        this.arrays = Collections.unmodifiableList(arrays);
+        this.indexedFields = Collections.unmodifiableSet(indexedFields);
+        this.referenceFields = Collections
+                .unmodifiableSet(new HashSet<Field>(references));
+        this.lazyReferences = Collections.unmodifiableSet(lazyReferences);
+        this.referenceClazzes = Collections.unmodifiableMap(referenceClazzes);
+        this.keyNames = Collections.unmodifiableMap(keyNames);
+        Map<String, byte[]> encodedKeyNames = new HashMap<String, byte[]>();
+        for (Field field : this.attributes) {
+            encodedKeyNames.put(keyNames.get(field), SafeEncoder
+                    .encode(keyNames.get(field)));
+        }
+        for (Field field : this.references) {
+            encodedKeyNames.put(keyNames.get(field), SafeEncoder
+                    .encode(keyNames.get(field)));
+        }
+        this.encodedKeyNames = Collections.unmodifiableMap(encodedKeyNames);
+        this.fieldsByName = Collections.unmodifiableMap(fieldsByName);
+        this.collectionAnnotations = Collections
+                .unmodifiableMap(collectionAnnotations);
+        this.arrayAnnotations = Collections.unmodifiableMap(arrayAnnotations);
+        this.accessors = Collections.unmodifiableMap(accessors);
+        this.mapper = createMapper(this);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ModelMapper<Object> createMapper(
+            final ModelMetadata metadata) {
+        Class<?> modelClazz = metadata.getModelClazz();
+        if (withoutMapper.containsKey(modelClazz)) {
+            return new ReflectionModelMapper(metadata);
+        }
+        Class<?> mapperClazz;
+        try {
+            mapperClazz = Class.forName(modelClazz.getName() + MAPPER_SUFFIX,
+                    true, modelClazz.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            withoutMapper.put(modelClazz, Boolean.TRUE);
+            return new ReflectionModelMapper(metadata);
+        }
+        if (!ModelMapper.class.isAssignableFrom(mapperClazz)) {
+            throw new JOhmException(mapperClazz.getName()
+                    + " does not implement " + ModelMapper.class.getName());
+        }
+        try {
+            return (ModelMapper<Object>) mapperClazz.newInstance();
+        } catch (InstantiationException e) {
+            throw new JOhmException(e);
+        } catch (IllegalAccessException e) {
+            throw new JOhmException(e);
+        }
+    }
+
+    private static FieldAccessor createAccessor(final Field field) {
+        FieldAccessor accessor = accessorFactory.accessorFor(field);
+        if (accessor == null) {
+            accessor = reflectionAccessorFactory.accessorFor(field);
+        }
+        return accessor;
+    }
+
+    private static Class<?> lazyReferenceClazz(final Field field) {
+        Type type = field.getGenericType();
+        if (type instanceof ParameterizedType) {
+            Type referenced = ((ParameterizedType) type)
+                    .getActualTypeArguments()[0];
+            if (referenced instanceof Class<?>) {
+                JOhmUtils.Validator.checkValidModelClazz((Class<?>) referenced);
+                return (Class<?>) referenced;
+            }
+        }
+        throw new JOhmException(field.getName()
+                + " is a LazyReference that does not declare the Model it references");
+    }
+
+    private static Annotation collectionAnnotation(final Field field) {
+        if (field.isAnnotationPresent(CollectionList.class)) {
+            return field.getAnnotation(CollectionList.class);
+        }
+        if (field.isAnnotationPresent(CollectionSet.class)) {
+            return field.getAnnotation(CollectionSet.class);
+        }
+        if (field.isAnnotationPresent(CollectionSortedSet.class)) {
+            return field.getAnnotation(CollectionSortedSet.class);
+        }
+        return field.getAnnotation(CollectionMap.class);
+    }
+
+    public Class<?> getModelClazz() {
+        return modelClazz;
+    }
+
+    /**
+     * The name under which instances of this Model are keyed in Redis.
+     */
+    public String getModelName() {
+        return modelName;
+    }
+
+    /**
+     * The field annotated with @Id or null if the Model does not declare one.
+     */
+    public Field getIdField() {
+        return idField;
+    }
+
+    /**
+     * Read the id of the given instance of this Model through the cached id
+     * field.
+     */
+    public Long getId(final Object model) {
+        try {
+            return (Long) accessors.get(checkedIdField()).get(model);
+        } catch (IllegalArgumentException e) {
+            throw new JOhmException(e);
+        }
+    }
+
+    /**
+     * Write the id of the given instance of this Model through the cached id
+     * field.
+     */
+    public void setId(final Object model, final Long id) {
+        try {
+            accessors.get(checkedIdField()).set(model, id);
+        } catch (IllegalArgumentException e) {
+            throw new JOhmException(e);
+        }
+    }
+
+    private Field checkedIdField() {
+        if (idField == null) {
+            throw new JOhmException(
+                    "JOhm does not support a Model without an Id");
+        }
+        return idField;
+    }
+
+    /**
+     * All fields of the Model's class hierarchy, most-derived class first.
+     */
+    public List<Field> getAllFields() {
+        return allFields;
+    }
+
+    public List<Field> getAttributes() {
+        return attributes;
+    }
+
+    public List<Field> getReferences() {
+        return references;
+    }
+
+    /**
+     * The @Indexed attributes and references whose values are indexed when the
+     * Model is saved. Indexed collections and arrays maintain their own index
+     * entries and are not part of this list.
+     */
+    public List<Field> getIndexed() {
+        return indexed;
+    }
+
+    public List<Field> getCollections() {
+        return collections;
+    }
+
+    public List<Field> getArrays() {
+        return arrays;
+    }
+
+    public boolean isIndexed(final Field field) {
+        return indexedFields.contains(field);
+    }
+
+    public boolean isReference(final Field field) {
+        return referenceFields.contains(field);
+    }
+
+    /**
+     * Whether the given reference is declared as a LazyReference.
+     */
+    public boolean isLazyReference(final Field field) {
+        return lazyReferences.contains(field);
+    }
+
+    /**
+     * The Model class the given reference field references.
+     */
+    public Class<?> getReferenceClazz(final Field field) {
+        return referenceClazzes.get(field);
+    }
+
+    /**
+     * The id of the Model the given reference field of the given instance
+     * references, without loading it if the reference is lazy. Returns null
+     * if the field is null or references a Model that has not been saved.
+     */
+    public Long getReferenceId(final Object model, final Field field) {
+        Object reference = accessors.get(field).get(model);
+        if (reference == null) {
+            return null;
+        }
+        if (lazyReferences.contains(field)) {
+            return ((LazyReference<?>) reference).getId();
+        }
+        return JOhmUtils.getId(reference);
+    }
+
+    /**
+     * The hash field name (for attributes and references) or index name under
+     * which the given field is persisted.
+     */
+    public String getKeyName(final Field field) {
+        return keyNames.get(field);
+    }
+
+    /**
+     * The UTF-8 bytes of the given hash field name, encoded once per Model
+     * class for the names of attributes and references.
+     */
+    public byte[] getEncodedKeyName(final String keyName) {
+        byte[] encoded = encodedKeyNames.get(keyName);
+        return encoded != null ? encoded : SafeEncoder.encode(keyName);
+    }
+
+    public Field getField(final String fieldName) {
+        return fieldsByName.get(fieldName);
+    }
+
+    /**
+     * The CollectionList, CollectionSet, CollectionSortedSet or CollectionMap
+     * annotation of the given collection field.
+     */
+    public Annotation getCollection(final Field field) {
+        return collectionAnnotations.get(field);
+    }
+
+    public Array getArray(final Field field) {
+        return arrayAnnotations.get(field);
+    }
+
+    /**
+     * The FieldAccessor through which the given field of this Model is read
+     * and written.
+     */
+    public FieldAccessor getAccessor(final Field field) {
+        return accessors.get(field);
+    }
+
+    /**
+     * The ModelMapper that creates instances of this Model and maps its
+     * attributes.
+     */
+    public ModelMapper<Object> getMapper() {
+        return mapper;
+    }
+}
@@ -0,0 +1,315 @@
+package redis.clients.johm;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import redis.clients.johm.collections.RedisArray;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * ModelWriter saves a batch of Models in at most two round trips, plus any the
+ * IdGenerator needs to allocate the ids of new Models: one pipeline reading
+ * what is stored for the persisted Models that have no change tracking
+ * snapshot, and one pipelined MULTI/EXEC writing the changes of all Models.
+ *
+ * Every Model is diffed against what is stored for it, so only the changed
+ * attributes, array elements and index entries are written.
+ */
+final class ModelWriter {
+    private final Backend backend;
+    private final ChangeTracker changeTracker;
+    private final ModelCache modelCache;
+    private final IdGenerator idGenerator;
+
+    /**
+     * @param changeTracker
+     *            where saved Models are snapshot and persisted Models are
+     *            diffed against, or null if changes are not tracked
+     * @param modelCache
+     *            whose entries of the saved Models are dropped, or null if
+     *            Models are not cached
+     */
+    ModelWriter(final Backend backend, final ChangeTracker changeTracker,
+            final ModelCache modelCache, final IdGenerator idGenerator) {
+        this.backend = backend;
+        this.changeTracker = changeTracker;
+        this.modelCache = modelCache;
+        this.idGenerator = idGenerator;
+    }
+
+    void save(final List<?> models, final boolean saveChildren) {
+        // whether each distinct Model is new
+        Map<Object, Boolean> distinct = new IdentityHashMap<Object, Boolean>();
+        List<Object> distinctModels = new ArrayList<Object>(models.size());
+        List<Object> newModels = new ArrayList<Object>();
+        for (Object model : models) {
+            if (!distinct.containsKey(model)) {
+                boolean isNew = JOhmUtils.isNew(model);
+                distinct.put(model, isNew);
+                distinctModels.add(model);
+                if (isNew) {
+                    newModels.add(model);
+                }
+            }
+        }
+        allocateIds(newModels);
+
+        final List<PendingSave> saves = new ArrayList<PendingSave>(
+                distinctModels.size());
+        final List<PendingSave> unknown = new ArrayList<PendingSave>();
+        for (Object model : distinctModels) {
+            PendingSave save = new PendingSave(model, !distinct.get(model),
+                    saveChildren);
+            ChangeTracker.Snapshot snapshot = save.persisted
+                    && changeTracker != null ? changeTracker.get(save.key,
+                    model) : null;
+            if (snapshot != null) {
+                save.storedHash = snapshot.getHash();
+                save.storedArrays = snapshot.getArrays();
+            } else if (save.persisted) {
+                unknown.add(save);
+            } else {
+                save.storedHash = Collections.emptyMap();
+                save.storedArrays = new ArrayList<List<String>>();
+                for (int i = 0; i < save.redisArrays.size(); i++) {
+                    save.storedArrays.add(Collections.<String> emptyList());
+                }
+            }
+            saves.add(save);
+        }
+        readStored(unknown);
+
+        boolean changed = false;
+        for (PendingSave save : saves) {
+            changed |= save.diff();
+        }
+        if (changed) {
+            if (modelCache != null) {
+                for (PendingSave save : saves) {
+                    modelCache.mayExist(save.key);
+                }
+            }
+            Nest<Object> nest = new Nest<Object>();
+            nest.setBackend(backend);
+            CommandBlock writes = new CommandBlock() {
+                public void execute() {
+                    for (PendingSave save : saves) {
+                        save.write(this);
+                    }
+                }
+            };
+            try {
+                nest.pipelinedMulti(writes);
+            } finally {
+                // a failed transaction may still have been applied
+                if (modelCache != null) {
+                    for (PendingSave save : saves) {
+                        modelCache.written(save.key);
+                    }
+                }
+            }
+        }
+
+        if (changeTracker != null) {
+            for (PendingSave save : saves) {
+                changeTracker.put(save.key, save.model, save.hashedObject,
+                        save.arrayValues);
+            }
+        }
+        UnitOfWork unitOfWork = UnitOfWork.current();
+        if (unitOfWork != null) {
+            for (PendingSave save : saves) {
+                unitOfWork.put(save.key, save.model);
+            }
+        }
+    }
+
+    private void allocateIds(final List<Object> newModels) {
+        if (newModels.isEmpty()) {
+            return;
+        }
+        final Map<Class<?>, List<Object>> byClazz = new LinkedHashMap<Class<?>, List<Object>>();
+        for (Object model : newModels) {
+            List<Object> sameClazz = byClazz.get(model.getClass());
+            if (sameClazz == null) {
+                sameClazz = new ArrayList<Object>();
+                byClazz.put(model.getClass(), sameClazz);
+            }
+            sameClazz.add(model);
+        }
+
+        for (Map.Entry<Class<?>, List<Object>> entry : byClazz.entrySet()) {
+            List<Object> sameClazz = entry.getValue();
+            long[] ids = idGenerator.allocate(entry.getKey(), sameClazz.size(),
+                    backend);
+            for (int i = 0; i < ids.length; i++) {
+                Object model = sameClazz.get(i);
+                ModelMetadata.forModel(model).setId(model, ids[i]);
+                Nest<Object> modelNest = new Nest<Object>(model);
+                modelNest.setBackend(backend);
+                JOhmUtils.initCollections(model, modelNest);
+            }
+        }
+    }
+
+    private void readStored(final List<PendingSave> saves) {
+        if (saves.isEmpty()) {
+            return;
+        }
+        Nest<Object> nest = new Nest<Object>();
+        nest.setBackend(backend);
+        List<Object> replies = nest.pipelined(new CommandBlock() {
+            public void execute() {
+                for (PendingSave save : saves) {
+                    hgetAll(SafeEncoder.encode(save.key));
+                    for (RedisArray<Object> redisArray : save.redisArrays) {
+                        redisArray.readStored(this);
+                    }
+                }
+            }
+        });
+
+        int reply = 0;
+        for (PendingSave save : saves) {
+            save.storedHash = JOhmUtils.toHash(replies.get(reply++));
+            save.storedArrays = new ArrayList<List<String>>();
+            for (int i = 0; i < save.redisArrays.size(); i++) {
+                save.storedArrays.add(JOhmUtils.toStrings(replies
+                        .get(reply++)));
+            }
+        }
+    }
+
+    private final class PendingSave {
+        private final Object model;
+        private final ModelMetadata metadata;
+        private final Nest<Object> nest;
+        private final String id;
+        private final String key;
+        private final boolean persisted;
+        private final Map<String, String> hashedObject = new HashMap<String, String>();
+        private final List<RedisArray<Object>> redisArrays = new ArrayList<RedisArray<Object>>();
+        private final List<List<String>> arrayValues = new ArrayList<List<String>>();
+        // what is stored so far is the baseline the save is diffed against
+        private Map<String, String> storedHash;
+        private List<List<String>> storedArrays;
+        private final Map<String, String> changedHash = new HashMap<String, String>();
+        private final Set<String> removedHashFields = new HashSet<String>();
+
+        private PendingSave(final Object model, final boolean persisted,
+                final boolean saveChildren) {
+            this.model = model;
+            this.metadata = ModelMetadata.forModel(model);
+            this.nest = new Nest<Object>(model);
+            nest.setBackend(backend);
+            this.id = String.valueOf(metadata.getId(model));
+            this.key = nest.cat(id).key();
+            this.persisted = persisted;
+
+            metadata.getMapper().toHash(model, hashedObject);
+            for (Field field : metadata.getReferences()) {
+                Object child = metadata.getAccessor(field).get(model);
+                if (child != null) {
+                    Long childId = metadata.getReferenceId(model, field);
+                    if (childId == null) {
+                        throw new MissingIdException();
+                    }
+                    if (saveChildren && metadata.isLazyReference(field)) {
+                        // an unloaded lazy reference is left as it is
+                        LazyReference<?> reference = (LazyReference<?>) child;
+                        child = reference.isLoaded() ? reference.get() : null;
+                    }
+                    if (saveChildren && child != null) {
+                        JOhm.save(child, saveChildren); // some more work to do
+                    }
+                    hashedObject.put(metadata.getKeyName(field), String
+                            .valueOf(childId));
+                }
+            }
+            for (Field field : metadata.getArrays()) {
+                Object[] backingArray = (Object[]) metadata.getAccessor(field)
+                        .get(model);
+                int actualLength = backingArray == null ? 0
+                        : backingArray.length;
+                JOhmUtils.Validator.checkValidArrayBounds(field, actualLength);
+                Array annotation = metadata.getArray(field);
+                RedisArray<Object> redisArray = new RedisArray<Object>(
+                        annotation.length(), annotation.of(), nest, field,
+                        model);
+                redisArrays.add(redisArray);
+                arrayValues.add(redisArray.toStored(backingArray));
+            }
+        }
+
+        /**
+         * Work out what changed against the stored baseline.
+         *
+         * @return whether anything has to be written
+         */
+        private boolean diff() {
+            for (Map.Entry<String, String> entry : hashedObject.entrySet()) {
+                if (!entry.getValue().equals(storedHash.get(entry.getKey()))) {
+                    changedHash.put(entry.getKey(), entry.getValue());
+                }
+            }
+            removedHashFields.addAll(storedHash.keySet());
+            removedHashFields.removeAll(hashedObject.keySet());
+
+            boolean changed = storedHash.isEmpty() || !changedHash.isEmpty()
+                    || !removedHashFields.isEmpty();
+            for (int i = 0; i < redisArrays.size(); i++) {
+                changed |= !arrayValues.get(i).equals(storedArrays.get(i));
+            }
+            return changed;
+        }
+
+        private void write(final Pipeline commands) {
+            byte[] encodedKey = SafeEncoder.encode(key);
+            for (Field field : metadata.getIndexed()) {
+                String keyName = metadata.getKeyName(field);
+                String storedValue = storedHash.get(keyName);
+                String fieldValue = hashedObject.get(keyName);
+                if (fieldValue == null ? storedValue == null : fieldValue
+                        .equals(storedValue)) {
+                    continue;
+                }
+                if (!JOhmUtils.isNullOrEmpty(storedValue)) {
+                    commands.srem(nest.cat(keyName).cat(storedValue)
+                            .keyBytes(), id);
+                }
+                if (!JOhmUtils.isNullOrEmpty(fieldValue)) {
+                    commands.sadd(nest.cat(keyName).cat(fieldValue)
+                            .keyBytes(), id);
+                }
+            }
+            for (String removedHashField : removedHashFields) {
+                commands.hdel(encodedKey, removedHashField);
+            }
+            if (!changedHash.isEmpty()) {
+                // field names as encoded once per Model class
+                Map<byte[], byte[]> encodedHash = new HashMap<byte[], byte[]>();
+                for (Map.Entry<String, String> entry : changedHash.entrySet()) {
+                    encodedHash.put(metadata.getEncodedKeyName(entry.getKey()),
+                            SafeEncoder.encode(entry.getValue()));
+                }
+                commands.hmset(encodedKey, encodedHash);
+            }
+            if (storedHash.isEmpty()) {
+                // always add to the all set, to support getAll
+                commands.sadd(nest.cat("all").keyBytes(), id);
+            }
+            for (int i = 0; i < redisArrays.size(); i++) {
+                redisArrays.get(i).write(arrayValues.get(i),
+                        storedArrays.get(i), commands);
+            }
+        }
+    }
+}
@@ -3,24 +3,50 @@ package redis.clients.johm;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.TransactionBlock;
-
+import redis.clients.util.SafeEncoder;
+
+/**
+ * Nest builds Redis keys out of colon separated parts and runs commands on
+ * them. The key prefix of each Model class is computed once. A Nest that
+ * nothing was appended to hands out its key without building it, so proxies
+ * issuing many commands against one key hold on to a fork() of it.
+ *
+ * Commands are sent through the Backend the Nest is given.
+ */
 public class Nest<T> {
-    private static final String COLON = ":";
+    private static final char COLON = ':';
+    private static final ConcurrentMap<Class<?>, String> prefixes = new ConcurrentHashMap<Class<?>, String>();
     private StringBuilder sb;
     private String key;
-    private JedisPool jedisPool;
+    // the key's bytes, encoded on first use
+    private byte[] encodedKey;
+    private Backend backend;
 
-    public void setJedisPool(JedisPool jedisPool) {
-        this.jedisPool = jedisPool;
+    public void setBackend(Backend backend) {
+        this.backend = backend;
         checkRedisLiveness();
     }
 
+    /**
+     * Send commands through a JedisBackend on the given pool, the one last
+     * set up for that pool if any.
+     */
+    public void setJedisPool(JedisPool jedisPool) {
+        setBackend(jedisPool == null ? null : JedisBackend.forPool(jedisPool));
+    }
+
+    /**
+     * A Nest on the key built so far, sharing this Nest's Backend.
+     */
     public Nest<T> fork() {
-        return new Nest<T>(key());
+        Nest<T> fork = new Nest<T>(key());
+        fork.backend = backend;
+        return fork;
     }
 
     public Nest() {
@@ -31,236 +57,210 @@ public class Nest<T> {
         this.key = key;
     }
 
-    public Nest(Class<T> clazz) {
-        this.key = clazz.getSimpleName();
+    public Nest(Class<? extends T> clazz) {
+        this.key = prefix(clazz);
     }
 
     public Nest(T model) {
-        this.key = model.getClass().getSimpleName();
+        this.key = prefix(model.getClass());
+    }
+
+    private static String prefix(final Class<?> clazz) {
+        String prefix = prefixes.get(clazz);
+        if (prefix == null) {
+            prefix = clazz.getSimpleName();
+            prefixes.put(clazz, prefix);
+        }
+        return prefix;
     }
 
     public String key() {
-        prefix();
+        if (sb == null) {
+            return key;
+        }
         String generatedKey = sb.toString();
-        generatedKey = generatedKey.substring(0, generatedKey.length() - 1);
         sb = null;
         return generatedKey;
     }
 
-    private void prefix() {
+    /**
+     * The key as UTF-8 bytes. Those of a Nest nothing was appended to, such as
+     * a fork(), are encoded once.
+     */
+    public byte[] keyBytes() {
+        if (sb != null) {
+            return SafeEncoder.encode(key());
+        }
+        if (encodedKey == null) {
+            encodedKey = SafeEncoder.encode(key);
+        }
+        return encodedKey;
+    }
+
+    private StringBuilder append() {
         if (sb == null) {
-            sb = new StringBuilder();
+            sb = new StringBuilder(key.length() + 24);
             sb.append(key);
-            sb.append(COLON);
         }
+        return sb.append(COLON);
     }
 
     public Nest<T> cat(int id) {
-        prefix();
-        sb.append(id);
-        sb.append(COLON);
+        append().append(id);
+        return this;
+    }
+
+    public Nest<T> cat(long id) {
+        append().append(id);
         return this;
     }
 
     public Nest<T> cat(Object field) {
-        prefix();
-        sb.append(field);
-        sb.append(COLON);
+        append().append(field);
         return this;
     }
 
     public Nest<T> cat(String field) {
-        prefix();
-        sb.append(field);
-        sb.append(COLON);
+        append().append(field);
         return this;
     }
 
     // Redis Common Operations
     public String set(String value) {
-        Jedis jedis = getResource();
-        String set = jedis.set(key(), value);
-        returnResource(jedis);
-        return set;
+        return backend.set(keyBytes(), value);
     }
 
     public String get() {
-        Jedis jedis = getResource();
-        String string = jedis.get(key());
-        returnResource(jedis);
-        return string;
+        return backend.get(keyBytes());
     }
 
     public Long incr() {
-        Jedis jedis = getResource();
-        Long incr = jedis.incr(key());
-        returnResource(jedis);
-        return incr;
+        return backend.incr(keyBytes());
+    }
+
+    public Long incrBy(int increment) {
+        return backend.incrBy(keyBytes(), increment);
     }
 
+    /**
+     * Send the commands issued by the given block wrapped in MULTI/EXEC as a
+     * single pipeline, so the whole transaction costs one round trip instead
+     * of one per queued command. Returns the replies of the queued commands.
+     */
+    public List<Object> pipelinedMulti(CommandBlock block) {
+        return backend.pipelinedMulti(block);
+    }
+
+    /**
+     * Run the given transaction block on a connection of the JedisBackend.
+     *
+     * @deprecated the block is tied to Jedis; use pipelinedMulti(), which
+     *             runs on any Backend in one round trip.
+     */
+    @Deprecated
     public List<Object> multi(TransactionBlock transaction) {
-        Jedis jedis = getResource();
-        List<Object> multi = jedis.multi(transaction);
-        returnResource(jedis);
-        return multi;
+        if (!(backend instanceof JedisBackend)) {
+            throw new JOhmException(
+                    "Transaction blocks can only run on a JedisBackend");
+        }
+        return ((JedisBackend) backend).multi(transaction);
+    }
+
+    /**
+     * Send the commands issued by the given block as a single pipeline and
+     * return their raw replies, e.g. byte[] for a bulk reply and a List of
+     * byte[] for a multi bulk reply.
+     */
+    public List<Object> pipelined(CommandBlock block) {
+        return backend.pipelined(block);
     }
 
     public Long del() {
-        Jedis jedis = getResource();
-        Long del = jedis.del(key());
-        returnResource(jedis);
-        return del;
+        return backend.del(keyBytes());
     }
 
     public Boolean exists() {
-        Jedis jedis = getResource();
-        Boolean exists = jedis.exists(key());
-        returnResource(jedis);
-        return exists;
+        return backend.exists(keyBytes());
     }
 
     // Redis Hash Operations
     public String hmset(Map<String, String> hash) {
-        Jedis jedis = getResource();
-        String hmset = jedis.hmset(key(), hash);
-        returnResource(jedis);
-        return hmset;
+        return backend.hmset(keyBytes(), hash);
     }
 
     public Map<String, String> hgetAll() {
-        Jedis jedis = getResource();
-        Map<String, String> hgetAll = jedis.hgetAll(key());
-        returnResource(jedis);
-        return hgetAll;
+        return backend.hgetAll(keyBytes());
     }
 
     public String hget(String field) {
-        Jedis jedis = getResource();
-        String value = jedis.hget(key(), field);
-        returnResource(jedis);
-        return value;
+        return backend.hget(keyBytes(), field);
     }
 
     public Long hdel(String field) {
-        Jedis jedis = getResource();
-        Long hdel = jedis.hdel(key(), field);
-        returnResource(jedis);
-        return hdel;
+        return backend.hdel(keyBytes(), field);
     }
 
     public Long hlen() {
-        Jedis jedis = getResource();
-        Long hlen = jedis.hlen(key());
-        returnResource(jedis);
-        return hlen;
+        return backend.hlen(keyBytes());
     }
 
     public Set<String> hkeys() {
-        Jedis jedis = getResource();
-        Set<String> hkeys = jedis.hkeys(key());
-        returnResource(jedis);
-        return hkeys;
+        return backend.hkeys(keyBytes());
     }
 
     // Redis Set Operations
     public Long sadd(String member) {
-        Jedis jedis = getResource();
-        Long reply = jedis.sadd(key(), member);
-        returnResource(jedis);
-        return reply;
+        return backend.sadd(keyBytes(), member);
     }
 
     public Long srem(String member) {
-        Jedis jedis = getResource();
-        Long reply = jedis.srem(key(), member);
-        returnResource(jedis);
-        return reply;
+        return backend.srem(keyBytes(), member);
     }
 
     public Set<String> smembers() {
-        Jedis jedis = getResource();
-        Set<String> members = jedis.smembers(key());
-        returnResource(jedis);
-        return members;
+        return backend.smembers(keyBytes());
     }
 
     // Redis List Operations
     public Long rpush(String string) {
-        Jedis jedis = getResource();
-        Long rpush = jedis.rpush(key(), string);
-        returnResource(jedis);
-        return rpush;
+        return backend.rpush(keyBytes(), string);
     }
 
     public String lset(int index, String value) {
-        Jedis jedis = getResource();
-        String lset = jedis.lset(key(), index, value);
-        returnResource(jedis);
-        return lset;
+        return backend.lset(keyBytes(), index, value);
     }
 
     public String lindex(int index) {
-        Jedis jedis = getResource();
-        String lindex = jedis.lindex(key(), index);
-        returnResource(jedis);
-        return lindex;
+        return backend.lindex(keyBytes(), index);
     }
 
     public Long llen() {
-        Jedis jedis = getResource();
-        Long llen = jedis.llen(key());
-        returnResource(jedis);
-        return llen;
+        return backend.llen(keyBytes());
     }
 
     public Long lrem(int count, String value) {
-        Jedis jedis = getResource();
-        Long lrem = jedis.lrem(key(), count, value);
-        returnResource(jedis);
-        return lrem;
+        return backend.lrem(keyBytes(), count, value);
     }
 
     public List<String> lrange(int start, int end) {
-        Jedis jedis = getResource();
-        List<String> lrange = jedis.lrange(key(), start, end);
-        returnResource(jedis);
-        return lrange;
+        return backend.lrange(keyBytes(), start, end);
     }
 
     // Redis SortedSet Operations
     public Set<String> zrange(int start, int end) {
-        Jedis jedis = getResource();
-        Set<String> zrange = jedis.zrange(key(), start, end);
-        returnResource(jedis);
-        return zrange;
+        return backend.zrange(keyBytes(), start, end);
     }
 
     public Long zadd(float score, String member) {
-        Jedis jedis = getResource();
-        Long zadd = jedis.zadd(key(), score, member);
-        returnResource(jedis);
-        return zadd;
+        return backend.zadd(keyBytes(), score, member);
     }
 
     public Long zcard() {
-        Jedis jedis = getResource();
-        Long zadd = jedis.zcard(key());
-        returnResource(jedis);
-        return zadd;
-    }
-
-    private void returnResource(final Jedis jedis) {
-        jedisPool.returnResource(jedis);
-    }
-
-    private Jedis getResource() {
-        Jedis jedis;
-        jedis = jedisPool.getResource();
-        return jedis;
+        return backend.zcard(keyBytes());
     }
 
     private void checkRedisLiveness() {
-        if (jedisPool == null) {
+        if (backend == null) {
             throw new JOhmException(
                     "JOhm will fail to do most useful tasks without Redis");
         }
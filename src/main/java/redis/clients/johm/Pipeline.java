@@ -0,0 +1,38 @@
+package redis.clients.johm;
+
+import java.util.Map;
+
+/**
+ * Pipeline is the set of commands JOhm queues to send them together, through a
+ * CommandBlock a Backend runs. Keys are passed as their UTF-8 bytes, as to a
+ * Backend. Each queued command adds one reply to what the Backend returns, as
+ * Redis sent it: a Long for an integer reply, a byte[] for a bulk reply and a
+ * List of byte[] for a multi bulk reply.
+ */
+public interface Pipeline {
+    void exists(byte[] key);
+
+    void del(byte[] key);
+
+    void hgetAll(byte[] key);
+
+    void hmget(byte[] key, String... fields);
+
+    void hmset(byte[] key, Map<byte[], byte[]> hash);
+
+    void hdel(byte[] key, String field);
+
+    void sadd(byte[] key, String member);
+
+    void srem(byte[] key, String member);
+
+    void smembers(byte[] key);
+
+    void sismember(byte[] key, String member);
+
+    void rpush(byte[] key, String string);
+
+    void lrange(byte[] key, int start, int end);
+
+    void zrange(byte[] key, int start, int end);
+}
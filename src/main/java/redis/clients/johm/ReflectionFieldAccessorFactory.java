@@ -0,0 +1,340 @@
+package redis.clients.johm;
+
+import java.lang.reflect.Field;
+
+import redis.clients.util.SafeEncoder;
+
+/**
+ * ReflectionFieldAccessorFactory is JOhm's default FieldAccessorFactory and
+ * the fallback for any field another factory declines. It specializes the
+ * accessor on the field's declared type once, so that primitive attributes are
+ * parsed and written with the primitive Field setters instead of being boxed
+ * and dispatched through JOhmUtils.Convertor on every call.
+ */
+public class ReflectionFieldAccessorFactory implements FieldAccessorFactory {
+    public FieldAccessor accessorFor(final Field field) {
+        field.setAccessible(true);
+        Class<?> type = field.getType();
+        if (type.equals(String.class)) {
+            return new StringAccessor(field);
+        }
+        if (type.equals(int.class)) {
+            return new IntAccessor(field);
+        }
+        if (type.equals(long.class)) {
+            return new LongAccessor(field);
+        }
+        if (type.equals(float.class)) {
+            return new FloatAccessor(field);
+        }
+        if (type.equals(double.class)) {
+            return new DoubleAccessor(field);
+        }
+        if (type.equals(short.class)) {
+            return new ShortAccessor(field);
+        }
+        if (type.equals(byte.class)) {
+            return new ByteAccessor(field);
+        }
+        if (type.equals(boolean.class)) {
+            return new BooleanAccessor(field);
+        }
+        return new ObjectAccessor(field);
+    }
+
+    /**
+     * Parse the ASCII digits of a stored integer without decoding them to a
+     * String. Anything but an optional minus sign followed by up to 18 digits
+     * is left to Long.parseLong(), so malformed values fail the same way.
+     */
+    private static long parseLong(final byte[] value) {
+        int start = value.length > 0 && value[0] == '-' ? 1 : 0;
+        if (value.length == start || value.length - start > 18) {
+            return Long.parseLong(SafeEncoder.encode(value));
+        }
+        long parsed = 0;
+        for (int i = start; i < value.length; i++) {
+            int digit = value[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.parseLong(SafeEncoder.encode(value));
+            }
+            parsed = parsed * 10 + digit;
+        }
+        return start == 0 ? parsed : -parsed;
+    }
+
+    private static class ObjectAccessor extends FieldAccessor {
+        ObjectAccessor(final Field field) {
+            super(field);
+        }
+
+        public Object get(final Object model) {
+            try {
+                return field.get(model);
+            } catch (IllegalAccessException e) {
+                throw new JOhmException(e);
+            }
+        }
+
+        public void set(final Object model, final Object value) {
+            try {
+                field.set(model, value);
+            } catch (IllegalAccessException e) {
+                throw new JOhmException(e);
+            }
+        }
+    }
+
+    private static final class StringAccessor extends ObjectAccessor {
+        StringAccessor(final Field field) {
+            super(field);
+        }
+
+        public String getString(final Object model) {
+            return (String) get(model);
+        }
+
+        public void setString(final Object model, final String value) {
+            set(model, value);
+        }
+    }
+
+    private static final class IntAccessor extends ObjectAccessor {
+        IntAccessor(final Field field) {
+            super(field);
+        }
+
+        public String getString(final Object model) {
+            return Integer.toString(getInt(model));
+        }
+
+        public void setString(final Object model, final String value) {
+            if (value == null) {
+                super.setString(model, value);
+            } else {
+                setInt(model, Integer.parseInt(value));
+            }
+        }
+
+        public void setBytes(final Object model, final byte[] value) {
+            long parsed = value == null ? 0 : parseLong(value);
+            if (value == null || parsed != (int) parsed) {
+                super.setBytes(model, value);
+            } else {
+                setInt(model, (int) parsed);
+            }
+        }
+
+        public int getInt(final Object model) {
+            try {
+                return field.getInt(model);
+            } catch (IllegalAccessException e) {
+                throw new JOhmException(e);
+            }
+        }
+
+        public void setInt(final Object model, final int value) {
+            try {
+                field.setInt(model, value);
+            } catch (IllegalAccessException e) {
+                throw new JOhmException(e);
+            }
+        }
+    }
+
+    private static final class LongAccessor extends ObjectAccessor {
+        LongAccessor(final Field field) {
+            super(field);
+        }
+
+        public String getString(final Object model) {
+            return Long.toString(getLong(model));
+        }
+
+        public void setString(final Object model, final String value) {
+            if (value == null) {
+                super.setString(model, value);
+            } else {
+                setLong(model, Long.parseLong(value));
+            }
+        }
+
+        public void setBytes(final Object model, final byte[] value) {
+            if (value == null) {
+                super.setBytes(model, value);
+            } else {
+                setLong(model, parseLong(value));
+            }
+        }
+
+        public long getLong(final Object model) {
+            try {
+                return field.getLong(model);
+            } catch (IllegalAccessException e) {
+                throw new JOhmException(e);
+            }
+        }
+
+        public void setLong(final Object model, final long value) {
+            try {
+                field.setLong(model, value);
+            } catch (IllegalAccessException e) {
+                throw new JOhmException(e);
+            }
+        }
+    }
+
+    private static final class FloatAccessor extends ObjectAccessor {
+        FloatAccessor(final Field field) {
+            super(field);
+        }
+
+        public String getString(final Object model) {
+            return Float.toString(getFloat(model));
+        }
+
+        public void setString(final Object model, final String value) {
+            if (value == null) {
+                super.setString(model, value);
+            } else {
+                setFloat(model, Float.parseFloat(value));
+            }
+        }
+
+        public float getFloat(final Object model) {
+            try {
+                return field.getFloat(model);
+            } catch (IllegalAccessException e) {
+                throw new JOhmException(e);
+            }
+        }
+
+        public void setFloat(final Object model, final float value) {
+            try {
+                field.setFloat(model, value);
+            } catch (IllegalAccessException e) {
+                throw new JOhmException(e);
+            }
+        }
+    }
+
+    private static final class DoubleAccessor extends ObjectAccessor {
+        DoubleAccessor(final Field field) {
+            super(field);
+        }
+
+        public String getString(final Object model) {
+            return Double.toString(getDouble(model));
+        }
+
+        public void setString(final Object model, final String value) {
+            if (value == null) {
+                super.setString(model, value);
+            } else {
+                setDouble(model, Double.parseDouble(value));
+            }
+        }
+
+        public double getDouble(final Object model) {
+            try {
+                return field.getDouble(model);
+            } catch (IllegalAccessException e) {
+                throw new JOhmException(e);
+            }
+        }
+
+        public void setDouble(final Object model, final double value) {
+            try {
+                field.setDouble(model, value);
+            } catch (IllegalAccessException e) {
+                throw new JOhmException(e);
+            }
+        }
+    }
+
+    private static final class ShortAccessor extends ObjectAccessor {
+        ShortAccessor(final Field field) {
+            super(field);
+        }
+
+        public String getString(final Object model) {
+            try {
+                return Short.toString(field.getShort(model));
+            } catch (IllegalAccessException e) {
+                throw new JOhmException(e);
+            }
+        }
+
+        public void setString(final Object model, final String value) {
+            if (value == null) {
+                super.setString(model, value);
+            } else {
+                try {
+                    field.setShort(model, Short.parseShort(value));
+                } catch (IllegalAccessException e) {
+                    throw new JOhmException(e);
+                }
+            }
+        }
+    }
+
+    private static final class ByteAccessor extends ObjectAccessor {
+        ByteAccessor(final Field field) {
+            super(field);
+        }
+
+        public String getString(final Object model) {
+            try {
+                return Byte.toString(field.getByte(model));
+            } catch (IllegalAccessException e) {
+                throw new JOhmException(e);
+            }
+        }
+
+        public void setString(final Object model, final String value) {
+            if (value == null) {
+                super.setString(model, value);
+            } else {
+                try {
+                    field.setByte(model, Byte.parseByte(value));
+                } catch (IllegalAccessException e) {
+                    throw new JOhmException(e);
+                }
+            }
+        }
+    }
+
+    private static final class BooleanAccessor extends ObjectAccessor {
+        BooleanAccessor(final Field field) {
+            super(field);
+        }
+
+        public String getString(final Object model) {
+            try {
+                return Boolean.toString(field.getBoolean(model));
+            } catch (IllegalAccessException e) {
+                throw new JOhmException(e);
+            }
+        }
+
+        public void setString(final Object model, final String value) {
+            try {
+                field.setBoolean(model, Boolean.parseBoolean(value));
+            } catch (IllegalAccessException e) {
+                throw new JOhmException(e);
+            }
+        }
+
+        public void setBytes(final Object model, final byte[] value) {
+            // Boolean.parseBoolean() without decoding
+            boolean parsed = value != null && value.length == 4
+                    && (value[0] | 0x20) == 't' && (value[1] | 0x20) == 'r'
+                    && (value[2] | 0x20) == 'u' && (value[3] | 0x20) == 'e';
+            try {
+                field.setBoolean(model, parsed);
+            } catch (IllegalAccessException e) {
+                throw new JOhmException(e);
+            }
+        }
+    }
+}
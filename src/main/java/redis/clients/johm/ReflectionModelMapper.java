@@ -0,0 +1,91 @@
+package redis.clients.johm;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import redis.clients.util.SafeEncoder;
+
+/**
+ * ReflectionModelMapper is the ModelMapper JOhm uses for Models that do not
+ * come with a mapper of their own. It maps attributes through the Model's
+ * cached FieldAccessors, matching the field names of binary replies against
+ * their bytes encoded once.
+ */
+final class ReflectionModelMapper implements BinaryModelMapper<Object> {
+    private final Class<?> modelClazz;
+    private final List<Field> attributes;
+    private final FieldAccessor[] accessors;
+    private final String[] keyNames;
+    private final byte[][] encodedKeyNames;
+
+    ReflectionModelMapper(final ModelMetadata metadata) {
+        this.modelClazz = metadata.getModelClazz();
+        this.attributes = metadata.getAttributes();
+        this.accessors = new FieldAccessor[attributes.size()];
+        this.keyNames = new String[attributes.size()];
+        this.encodedKeyNames = new byte[attributes.size()][];
+        for (int i = 0; i < accessors.length; i++) {
+            Field field = attributes.get(i);
+            accessors[i] = metadata.getAccessor(field);
+            keyNames[i] = metadata.getKeyName(field);
+            encodedKeyNames[i] = metadata.getEncodedKeyName(keyNames[i]);
+        }
+    }
+
+    public Object newInstance() {
+        try {
+            return modelClazz.newInstance();
+        } catch (InstantiationException e) {
+            throw new JOhmException(e);
+        } catch (IllegalAccessException e) {
+            throw new JOhmException(e);
+        }
+    }
+
+    public void toHash(final Object model, final Map<String, String> hash) {
+        for (int i = 0; i < accessors.length; i++) {
+            String value = accessors[i].getString(model);
+            if (value != null) {
+                hash.put(keyNames[i], value);
+            }
+        }
+    }
+
+    public void fromHash(final Map<String, String> hash, final Object model) {
+        for (int i = 0; i < accessors.length; i++) {
+            accessors[i].setString(model, hash.get(keyNames[i]));
+        }
+    }
+
+    public void fromBinaryHash(final List<byte[]> flattened,
+            final Object model, final Map<String, String> others) {
+        boolean[] mapped = new boolean[accessors.length];
+        for (int i = 0; i < flattened.size(); i += 2) {
+            byte[] keyName = flattened.get(i);
+            int attribute = indexOf(keyName);
+            if (attribute < 0) {
+                others.put(SafeEncoder.encode(keyName), SafeEncoder
+                        .encode(flattened.get(i + 1)));
+            } else {
+                accessors[attribute].setBytes(model, flattened.get(i + 1));
+                mapped[attribute] = true;
+            }
+        }
+        for (int i = 0; i < accessors.length; i++) {
+            if (!mapped[i]) {
+                accessors[i].setString(model, null);
+            }
+        }
+    }
+
+    private int indexOf(final byte[] keyName) {
+        for (int i = 0; i < encodedKeyNames.length; i++) {
+            if (Arrays.equals(encodedKeyNames[i], keyName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
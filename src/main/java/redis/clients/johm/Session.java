@@ -0,0 +1,177 @@
+package redis.clients.johm;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * Session pins one pooled connection to the calling thread between
+ * JOhm.openSession() and close(), so every command the thread sends through a
+ * JedisBackend, from JOhm, its collections and lazily loaded Models, shares it
+ * instead of borrowing a connection from the pool per command. The connection
+ * is borrowed on the first command, and a connection a command failed on is
+ * discarded and replaced on the next one.
+ *
+ * Every JOhm operation runs in a Session of its own, or joins the one open on
+ * the thread, so a save or get borrows at most once. A Session holds on to its
+ * connection until it is closed, so it is meant for a bounded piece of work:
+ *
+ * <pre>
+ * Session session = JOhm.openSession();
+ * try {
+ *     ...
+ * } finally {
+ *     session.close();
+ * }
+ * </pre>
+ *
+ * The time threads wait for the pool to hand out connections, with or without
+ * a Session, is kept in process-wide counters.
+ */
+public final class Session {
+    private static final ThreadLocal<Session> current = new ThreadLocal<Session>();
+    private static final AtomicLong borrows = new AtomicLong();
+    private static final AtomicLong poolWaitNanos = new AtomicLong();
+    private static final AtomicLong maxPoolWaitNanos = new AtomicLong();
+
+    // the pool of the pinned connection
+    private JedisPool jedisPool;
+    // null until the first command, and after a command failed on it
+    private Jedis jedis;
+    // the user's and JOhm's operations sharing this session
+    private int depth = 1;
+
+    private Session() {
+    }
+
+    static Session open() {
+        if (current.get() != null) {
+            throw new JOhmException("A Session is already open on this thread");
+        }
+        Session session = new Session();
+        current.set(session);
+        return session;
+    }
+
+    /**
+     * Join the Session open on the calling thread, or open one if none is.
+     * Each join is ended with leave().
+     */
+    static Session join() {
+        Session session = current.get();
+        if (session == null) {
+            session = new Session();
+            current.set(session);
+        } else {
+            session.depth++;
+        }
+        return session;
+    }
+
+    /**
+     * The Session open on the calling thread, or null if none is.
+     */
+    static Session current() {
+        return current.get();
+    }
+
+    /**
+     * Borrow a connection from the given pool, recording how long it took.
+     */
+    static Jedis borrow(final JedisPool jedisPool) {
+        long start = System.nanoTime();
+        try {
+            return jedisPool.getResource();
+        } finally {
+            long waited = System.nanoTime() - start;
+            borrows.incrementAndGet();
+            poolWaitNanos.addAndGet(waited);
+            long max = maxPoolWaitNanos.get();
+            while (waited > max
+                    && !maxPoolWaitNanos.compareAndSet(max, waited)) {
+                max = maxPoolWaitNanos.get();
+            }
+        }
+    }
+
+    /**
+     * The number of connections JOhm has borrowed from its pools.
+     */
+    public static long getBorrows() {
+        return borrows.get();
+    }
+
+    /**
+     * The nanoseconds JOhm has spent in total waiting for its pools to hand
+     * out connections, including the time taken to connect new ones.
+     */
+    public static long getPoolWaitNanos() {
+        return poolWaitNanos.get();
+    }
+
+    /**
+     * The longest a single borrow has waited for a connection, in
+     * nanoseconds.
+     */
+    public static long getMaxPoolWaitNanos() {
+        return maxPoolWaitNanos.get();
+    }
+
+    /**
+     * Whether this Session currently holds a connection.
+     */
+    public boolean isConnected() {
+        return jedis != null;
+    }
+
+    /**
+     * End this Session and give its connection back to the pool. The calling
+     * thread borrows per operation again.
+     */
+    public void close() {
+        if (current.get() == this) {
+            current.remove();
+        }
+        depth = 0;
+        if (jedis != null) {
+            jedisPool.returnResource(jedis);
+            jedis = null;
+        }
+    }
+
+    void leave() {
+        if (--depth == 0) {
+            close();
+        }
+    }
+
+    /**
+     * The connection pinned to this Session, borrowed from the given pool on
+     * first use, or null if the pinned connection is from another pool.
+     */
+    Jedis connection(final JedisPool pool) {
+        if (jedis == null) {
+            jedis = borrow(pool);
+            jedisPool = pool;
+        } else if (pool != jedisPool) {
+            return null;
+        }
+        return jedis;
+    }
+
+    boolean pins(final Jedis connection) {
+        return connection == jedis;
+    }
+
+    /**
+     * Discard the pinned connection, which may have unread replies left on
+     * it. The next command borrows another one.
+     */
+    void broken() {
+        if (jedis != null) {
+            jedisPool.returnBrokenResource(jedis);
+            jedis = null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package redis.clients.johm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * UnitOfWork is an identity map of the Models loaded and saved by one thread
+ * between JOhm.openUnitOfWork() and close(). While it is open every get, find,
+ * getAll, iterateAll and collection of that thread hands out the instance
+ * already loaded for a (class, id) instead of loading it again, so a Model
+ * referenced by many others is read from Redis once, and cyclic plain
+ * references resolve to the instances being loaded.
+ *
+ * Instances are reused as they are, including any changes not saved yet. A
+ * UnitOfWork holds on to every Model it has seen until it is closed, so it is
+ * meant for a bounded piece of work such as a request:
+ *
+ * <pre>
+ * UnitOfWork unitOfWork = JOhm.openUnitOfWork();
+ * try {
+ *     ...
+ * } finally {
+ *     unitOfWork.close();
+ * }
+ * </pre>
+ */
+public final class UnitOfWork {
+    private static final ThreadLocal<UnitOfWork> current = new ThreadLocal<UnitOfWork>();
+
+    private final Map<String, Object> models = new HashMap<String, Object>();
+
+    private UnitOfWork() {
+    }
+
+    static UnitOfWork open() {
+        if (current.get() != null) {
+            throw new JOhmException(
+                    "A UnitOfWork is already open on this thread");
+        }
+        UnitOfWork unitOfWork = new UnitOfWork();
+        current.set(unitOfWork);
+        return unitOfWork;
+    }
+
+    /**
+     * The UnitOfWork open on the calling thread, or null if none is.
+     */
+    static UnitOfWork current() {
+        return current.get();
+    }
+
+    /**
+     * Forget every Model seen so far; they are loaded again on next access.
+     */
+    public void clear() {
+        models.clear();
+    }
+
+    /**
+     * The number of Models in the identity map.
+     */
+    public int size() {
+        return models.size();
+    }
+
+    /**
+     * End this unit of work. The calling thread loads fresh instances again.
+     */
+    public void close() {
+        if (current.get() == this) {
+            current.remove();
+        }
+        models.clear();
+    }
+
+    /**
+     * The instance known for the given Model key, or null.
+     */
+    Object get(final String key) {
+        return models.get(key);
+    }
+
+    void put(final String key, final Object model) {
+        models.put(key, model);
+    }
+
+    void remove(final String key) {
+        models.remove(key);
+    }
+}
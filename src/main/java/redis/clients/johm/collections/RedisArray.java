@@ -2,11 +2,17 @@ package redis.clients.johm.collections;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
-import redis.clients.johm.Indexed;
 import redis.clients.johm.JOhm;
 import redis.clients.johm.JOhmUtils;
+import redis.clients.johm.MissingIdException;
+import redis.clients.johm.ModelMetadata;
 import redis.clients.johm.Nest;
+import redis.clients.johm.Pipeline;
 import redis.clients.johm.JOhmUtils.Convertor;
 import redis.clients.johm.JOhmUtils.JOhmCollectionDataType;
 
@@ -31,7 +37,11 @@ public class RedisArray<T> {
     private final Nest<? extends T> nest;
     private final Field field;
     private final Object owner;
-    private boolean isIndexed;
+    private final boolean isIndexed;
+    // the Nests of the stored collection and of its index entries, built on
+    // first use
+    private Nest<?> store;
+    private Nest<?> index;
 
     public RedisArray(int length, Class<? extends T> clazz,
             Nest<? extends T> nest, Field field, Object owner) {
@@ -40,61 +50,97 @@ public class RedisArray<T> {
         johmElementType = JOhmUtils.detectJOhmCollectionDataType(clazz);
         this.nest = nest;
         this.field = field;
-        isIndexed = field.isAnnotationPresent(Indexed.class);
         this.owner = owner;
+        isIndexed = ModelMetadata.forModel(owner).isIndexed(field);
     }
 
+    /**
+     * Read the persisted elements with a single LRANGE.
+     */
     @SuppressWarnings("unchecked")
     public T[] read() {
         T[] streamed = (T[]) Array.newInstance(elementClazz, length);
-        for (int iter = 0; iter < length; iter++) {
-            streamed[iter] = elementClazz.cast(get(iter));
+        List<String> stored = store().lrange(0, length - 1);
+        for (int iter = 0; iter < stored.size(); iter++) {
+            streamed[iter] = elementClazz.cast(toElement(stored.get(iter)));
         }
         return streamed;
     }
 
-    public void write(T[] backingArray) {
-        if (backingArray == null || backingArray.length == 0) {
-            clear();
-        } else {
-            for (int iter = 0; iter < backingArray.length; iter++) {
-                delete(iter);
-                save(backingArray[iter]);
-            }
-        }
-    }
-
-    public Long clear() {
-        return nest.cat(JOhmUtils.getId(owner)).cat(field.getName()).del();
+    /**
+     * Queue the read of the persisted elements as they are stored in Redis.
+     */
+    public void readStored(Pipeline commands) {
+        commands.lrange(store().keyBytes(), 0, -1);
     }
 
-    private boolean save(T element) {
-        boolean success = false;
-        if (element != null) {
+    /**
+     * The elements of the given backing array as they are stored in Redis.
+     * Null elements are not stored.
+     */
+    public List<String> toStored(T[] backingArray) {
+        List<String> values = new ArrayList<String>();
+        if (backingArray == null) {
+            return values;
+        }
+        for (T element : backingArray) {
+            if (element == null) {
+                continue;
+            }
             if (johmElementType == JOhmCollectionDataType.PRIMITIVE) {
-                success = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
-                        .rpush(element.toString()) > 0;
+                values.add(element.toString());
             } else if (johmElementType == JOhmCollectionDataType.MODEL) {
-                success = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
-                        .rpush(JOhmUtils.getId(element).toString()) > 0;
+                Long elementId = JOhmUtils.getId(element);
+                if (elementId == null) {
+                    throw new MissingIdException();
+                }
+                values.add(elementId.toString());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Queue the commands that replace the storedValues persisted so far with
+     * the given values, as returned by toStored(). Only the index entries of
+     * values that were added or removed are touched.
+     */
+    public void write(List<String> values, List<String> storedValues,
+            Pipeline commands) {
+        if (values.equals(storedValues)) {
+            return;
+        }
+        String ownerId = JOhmUtils.getId(owner).toString();
+        byte[] key = store().keyBytes();
+        if (!storedValues.isEmpty()) {
+            commands.del(key);
+        }
+        for (String value : values) {
+            commands.rpush(key, value);
+        }
+        if (isIndexed) {
+            Set<String> removed = new HashSet<String>(storedValues);
+            removed.removeAll(values);
+            for (String value : removed) {
+                commands.srem(index().cat(value).keyBytes(),
+                        ownerId);
             }
-            if (isIndexed) {
-                indexValue(element);
+            Set<String> added = new HashSet<String>(values);
+            added.removeAll(storedValues);
+            for (String value : added) {
+                commands.sadd(index().cat(value).keyBytes(),
+                        ownerId);
             }
         }
-        return success;
     }
 
-    private void delete(int index) {
-        T element = this.get(index);
-        internalDelete(element);
+    public Long clear() {
+        return store().del();
     }
 
     @SuppressWarnings("unchecked")
-    private T get(int index) {
+    private T toElement(String key) {
         T element = null;
-        String key = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
-                .lindex(index);
         if (!JOhmUtils.isNullOrEmpty(key)) {
             if (johmElementType == JOhmCollectionDataType.PRIMITIVE) {
                 element = (T) Convertor.convert(elementClazz, key);
@@ -105,41 +151,18 @@ public class RedisArray<T> {
         return element;
     }
 
-    private void indexValue(T element) {
-        if (johmElementType == JOhmCollectionDataType.PRIMITIVE) {
-            nest.cat(field.getName()).cat(element.toString()).sadd(
-                    JOhmUtils.getId(owner).toString());
-        } else if (johmElementType == JOhmCollectionDataType.MODEL) {
-            nest.cat(field.getName()).cat(JOhmUtils.getId(element)).sadd(
-                    JOhmUtils.getId(owner).toString());
+    private Nest<?> store() {
+        if (store == null) {
+            store = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
+                    .fork();
         }
+        return store;
     }
 
-    private void unindexValue(T element) {
-        if (johmElementType == JOhmCollectionDataType.PRIMITIVE) {
-            nest.cat(field.getName()).cat(element.toString()).srem(
-                    JOhmUtils.getId(owner).toString());
-        } else if (johmElementType == JOhmCollectionDataType.MODEL) {
-            nest.cat(field.getName()).cat(JOhmUtils.getId(element)).srem(
-                    JOhmUtils.getId(owner).toString());
-        }
-    }
-
-    private boolean internalDelete(T element) {
-        if (element == null) {
-            return false;
-        }
-        Long lrem = 0L;
-        if (johmElementType == JOhmCollectionDataType.PRIMITIVE) {
-            lrem = nest.cat(JOhmUtils.getId(owner)).cat(field.getName()).lrem(
-                    1, element.toString());
-        } else if (johmElementType == JOhmCollectionDataType.MODEL) {
-            lrem = nest.cat(JOhmUtils.getId(owner)).cat(field.getName()).lrem(
-                    1, JOhmUtils.getId(element).toString());
-        }
-        if (isIndexed) {
-            unindexValue(element);
+    private Nest<?> index() {
+        if (index == null) {
+            index = nest.cat(field.getName()).fork();
         }
-        return lrem > 0L;
+        return index;
     }
-}
\ No newline at end of file
+}
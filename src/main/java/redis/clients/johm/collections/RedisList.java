@@ -7,10 +7,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 
-import redis.clients.johm.Indexed;
 import redis.clients.johm.JOhm;
 import redis.clients.johm.JOhmUtils;
+import redis.clients.johm.ModelMetadata;
 import redis.clients.johm.Nest;
+import redis.clients.johm.Pipeline;
 import redis.clients.johm.JOhmUtils.Convertor;
 import redis.clients.johm.JOhmUtils.JOhmCollectionDataType;
 
@@ -29,6 +30,13 @@ public class RedisList<T> implements java.util.List<T> {
     private final JOhmCollectionDataType johmElementType;
     private final Field field;
     private final Object owner;
+    private final boolean isIndexed;
+    // the elements as prefetched by a FetchPlan, until this list is modified
+    private List<T> preloaded;
+    // the Nests of the stored collection and of its index entries, built on
+    // first use
+    private Nest<?> store;
+    private Nest<?> index;
 
     public RedisList(Class<? extends T> clazz, Nest<? extends T> nest,
             Field field, Object owner) {
@@ -37,6 +45,7 @@ public class RedisList<T> implements java.util.List<T> {
         this.nest = nest;
         this.field = field;
         this.owner = owner;
+        isIndexed = ModelMetadata.forModel(owner).isIndexed(field);
     }
 
     public boolean add(T e) {
@@ -63,7 +72,8 @@ public class RedisList<T> implements java.util.List<T> {
     }
 
     public void clear() {
-        nest.cat(JOhmUtils.getId(owner)).cat(field.getName()).del();
+        preloaded = null;
+        store().del();
     }
 
     public boolean contains(Object o) {
@@ -76,9 +86,12 @@ public class RedisList<T> implements java.util.List<T> {
 
     @SuppressWarnings("unchecked")
     public T get(int index) {
+        List<T> elements = preloaded;
+        if (elements != null && index >= 0 && index < elements.size()) {
+            return elements.get(index);
+        }
         T element = null;
-        String key = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
-                .lindex(index);
+        String key = store().lindex(index);
         if (!JOhmUtils.isNullOrEmpty(key)) {
             if (johmElementType == JOhmCollectionDataType.PRIMITIVE) {
                 element = (T) Convertor.convert(elementClazz, key);
@@ -152,8 +165,11 @@ public class RedisList<T> implements java.util.List<T> {
     }
 
     public int size() {
-        return nest.cat(JOhmUtils.getId(owner)).cat(field.getName()).llen()
-                .intValue();
+        List<T> elements = preloaded;
+        if (elements != null) {
+            return elements.size();
+        }
+        return store().llen().intValue();
     }
 
     public java.util.List<T> subList(int fromIndex, int toIndex) {
@@ -169,14 +185,29 @@ public class RedisList<T> implements java.util.List<T> {
         return scrollElements().toArray(a);
     }
 
+    /**
+     * Queue the read of the persisted elements as they are stored in Redis.
+     */
+    public void readStored(Pipeline commands) {
+        commands.lrange(store().keyBytes(), 0, -1);
+    }
+
+    /**
+     * Serve the given elements, as prefetched by a FetchPlan, instead of
+     * reading them from Redis until this list is modified.
+     */
+    public void preload(List<T> elements) {
+        preloaded = elements;
+    }
+
     private boolean internalAdd(T element) {
         boolean success = false;
         if (element != null) {
+            preloaded = null;
             if (johmElementType == JOhmCollectionDataType.PRIMITIVE) {
-                success = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
-                        .rpush(element.toString()) > 0;
+                success = store().rpush(element.toString()) > 0;
             } else if (johmElementType == JOhmCollectionDataType.MODEL) {
-                success = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
+                success = store()
                         .rpush(JOhmUtils.getId(element).toString()) > 0;
             }
             indexValue(element);
@@ -185,24 +216,24 @@ public class RedisList<T> implements java.util.List<T> {
     }
 
     private void indexValue(T element) {
-        if (field.isAnnotationPresent(Indexed.class)) {
+        if (isIndexed) {
             if (johmElementType == JOhmCollectionDataType.PRIMITIVE) {
-                nest.cat(field.getName()).cat(element.toString()).sadd(
+                index().cat(element.toString()).sadd(
                         JOhmUtils.getId(owner).toString());
             } else if (johmElementType == JOhmCollectionDataType.MODEL) {
-                nest.cat(field.getName()).cat(JOhmUtils.getId(element)).sadd(
+                index().cat(JOhmUtils.getId(element)).sadd(
                         JOhmUtils.getId(owner).toString());
             }
         }
     }
 
     private void unindexValue(T element) {
-        if (field.isAnnotationPresent(Indexed.class)) {
+        if (isIndexed) {
             if (johmElementType == JOhmCollectionDataType.PRIMITIVE) {
-                nest.cat(field.getName()).cat(element.toString()).srem(
+                index().cat(element.toString()).srem(
                         JOhmUtils.getId(owner).toString());
             } else if (johmElementType == JOhmCollectionDataType.MODEL) {
-                nest.cat(field.getName()).cat(JOhmUtils.getId(element)).srem(
+                index().cat(JOhmUtils.getId(element)).srem(
                         JOhmUtils.getId(owner).toString());
             }
         }
@@ -210,12 +241,11 @@ public class RedisList<T> implements java.util.List<T> {
 
     private void internalIndexedAdd(int index, T element) {
         if (element != null) {
+            preloaded = null;
             if (johmElementType == JOhmCollectionDataType.PRIMITIVE) {
-                nest.cat(JOhmUtils.getId(owner)).cat(field.getName()).lset(
-                        index, element.toString());
+                store().lset(index, element.toString());
             } else if (johmElementType == JOhmCollectionDataType.MODEL) {
-                nest.cat(JOhmUtils.getId(owner)).cat(field.getName()).lset(
-                        index, JOhmUtils.getId(element).toString());
+                store().lset(index, JOhmUtils.getId(element).toString());
             }
             indexValue(element);
         }
@@ -224,13 +254,12 @@ public class RedisList<T> implements java.util.List<T> {
     private boolean internalRemove(T element) {
         boolean success = false;
         if (element != null) {
+            preloaded = null;
             Long lrem = 0L;
             if (johmElementType == JOhmCollectionDataType.PRIMITIVE) {
-                lrem = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
-                        .lrem(1, element.toString());
+                lrem = store().lrem(1, element.toString());
             } else if (johmElementType == JOhmCollectionDataType.MODEL) {
-                lrem = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
-                        .lrem(1, JOhmUtils.getId(element).toString());
+                lrem = store().lrem(1, JOhmUtils.getId(element).toString());
             }
             unindexValue(element);
             success = lrem > 0L;
@@ -246,10 +275,12 @@ public class RedisList<T> implements java.util.List<T> {
 
     @SuppressWarnings("unchecked")
     private synchronized List<T> scrollElements() {
+        if (preloaded != null) {
+            return new ArrayList<T>(preloaded);
+        }
         List<T> elements = new ArrayList<T>();
 
-        List<String> keys = nest.cat(JOhmUtils.getId(owner)).cat(
-                field.getName()).lrange(0, -1);
+        List<String> keys = store().lrange(0, -1);
         for (String key : keys) {
             if (johmElementType == JOhmCollectionDataType.PRIMITIVE) {
                 elements.add((T) Convertor.convert(elementClazz, key));
@@ -259,4 +290,19 @@ public class RedisList<T> implements java.util.List<T> {
         }
         return elements;
     }
-}
\ No newline at end of file
+
+    private Nest<?> store() {
+        if (store == null) {
+            store = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
+                    .fork();
+        }
+        return store;
+    }
+
+    private Nest<?> index() {
+        if (index == null) {
+            index = nest.cat(field.getName()).fork();
+        }
+        return index;
+    }
+}
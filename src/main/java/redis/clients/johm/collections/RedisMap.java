@@ -8,10 +8,11 @@ import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
-import redis.clients.johm.Indexed;
 import redis.clients.johm.JOhm;
 import redis.clients.johm.JOhmUtils;
+import redis.clients.johm.ModelMetadata;
 import redis.clients.johm.Nest;
+import redis.clients.johm.Pipeline;
 import redis.clients.johm.JOhmUtils.Convertor;
 import redis.clients.johm.JOhmUtils.JOhmCollectionDataType;
 
@@ -32,6 +33,15 @@ public class RedisMap<K, V> implements Map<K, V> {
     private final JOhmCollectionDataType johmValueType;
     private final Field field;
     private final Object owner;
+    private final boolean isIndexed;
+    // the entries as prefetched by a FetchPlan, until this map is modified
+    private Map<K, V> preloaded;
+    // the prefetched values by the hash fields their keys are stored as
+    private Map<String, V> preloadedValues;
+    // the Nests of the stored collection and of its index entries, built on
+    // first use
+    private Nest<?> store;
+    private Nest<?> index;
 
     public RedisMap(final Class<? extends K> keyClazz,
             final Class<? extends V> valueClazz, final Nest<? extends V> nest,
@@ -43,40 +53,39 @@ public class RedisMap<K, V> implements Map<K, V> {
         this.nest = nest;
         this.field = field;
         this.owner = owner;
+        isIndexed = ModelMetadata.forModel(owner).isIndexed(field);
     }
 
     private void indexValue(K element) {
-        if (field.isAnnotationPresent(Indexed.class)) {
+        if (isIndexed) {
             if (johmKeyType == JOhmCollectionDataType.PRIMITIVE) {
-                nest.cat(field.getName()).cat(element).sadd(
-                        JOhmUtils.getId(owner).toString());
+                index().cat(element).sadd(JOhmUtils.getId(owner).toString());
             } else if (johmKeyType == JOhmCollectionDataType.MODEL) {
-                nest.cat(field.getName()).cat(JOhmUtils.getId(element)).sadd(
+                index().cat(JOhmUtils.getId(element)).sadd(
                         JOhmUtils.getId(owner).toString());
             }
         }
     }
 
     private void unindexValue(K element) {
-        if (field.isAnnotationPresent(Indexed.class)) {
+        if (isIndexed) {
             if (johmKeyType == JOhmCollectionDataType.PRIMITIVE) {
-                nest.cat(field.getName()).cat(element).srem(
-                        JOhmUtils.getId(owner).toString());
+                index().cat(element).srem(JOhmUtils.getId(owner).toString());
             } else if (johmKeyType == JOhmCollectionDataType.MODEL) {
-                nest.cat(field.getName()).cat(JOhmUtils.getId(element)).srem(
+                index().cat(JOhmUtils.getId(element)).srem(
                         JOhmUtils.getId(owner).toString());
             }
         }
     }
 
     public void clear() {
-        Map<String, String> savedHash = nest.cat(JOhmUtils.getId(owner)).cat(
-                field.getName()).hgetAll();
+        preloaded = null;
+        preloadedValues = null;
+        Map<String, String> savedHash = store().hgetAll();
         for (Map.Entry<String, String> entry : savedHash.entrySet()) {
-            nest.cat(JOhmUtils.getId(owner)).cat(field.getName()).hdel(
-                    entry.getKey());
+            store().hdel(entry.getKey());
         }
-        nest.cat(JOhmUtils.getId(owner)).cat(field.getName()).del();
+        store().del();
     }
 
     public boolean containsKey(Object key) {
@@ -93,14 +102,16 @@ public class RedisMap<K, V> implements Map<K, V> {
 
     @SuppressWarnings("unchecked")
     public V get(Object key) {
+        Map<String, V> values = preloadedValues;
+        if (values != null) {
+            return values.get(hashField(key));
+        }
         V value = null;
         String valueKey = null;
         if (johmKeyType == JOhmCollectionDataType.PRIMITIVE) {
-            valueKey = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
-                    .hget(key.toString());
+            valueKey = store().hget(key.toString());
         } else if (johmKeyType == JOhmCollectionDataType.MODEL) {
-            valueKey = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
-                    .hget(JOhmUtils.getId(key).toString());
+            valueKey = store().hget(JOhmUtils.getId(key).toString());
         }
 
         if (!JOhmUtils.isNullOrEmpty(valueKey)) {
@@ -119,9 +130,12 @@ public class RedisMap<K, V> implements Map<K, V> {
 
     @SuppressWarnings("unchecked")
     public Set<K> keySet() {
+        Map<K, V> entries = preloaded;
+        if (entries != null) {
+            return new LinkedHashSet<K>(entries.keySet());
+        }
         Set<K> keys = new LinkedHashSet<K>();
-        for (String key : nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
-                .hkeys()) {
+        for (String key : store().hkeys()) {
             if (johmKeyType == JOhmCollectionDataType.PRIMITIVE) {
                 keys.add((K) JOhmUtils.Convertor.convert(keyClazz, key));
             } else if (johmKeyType == JOhmCollectionDataType.MODEL) {
@@ -146,27 +160,62 @@ public class RedisMap<K, V> implements Map<K, V> {
     @SuppressWarnings("unchecked")
     public V remove(Object key) {
         V value = get(key);
+        preloaded = null;
+        preloadedValues = null;
         if (johmKeyType == JOhmCollectionDataType.PRIMITIVE) {
-            nest.cat(JOhmUtils.getId(owner)).cat(field.getName()).hdel(
-                    key.toString());
+            store().hdel(key.toString());
         } else if (johmKeyType == JOhmCollectionDataType.MODEL) {
-            nest.cat(JOhmUtils.getId(owner)).cat(field.getName()).hdel(
-                    JOhmUtils.getId(key).toString());
+            store().hdel(JOhmUtils.getId(key).toString());
         }
         unindexValue((K) key);
         return value;
     }
 
     public int size() {
-        return nest.cat(JOhmUtils.getId(owner)).cat(field.getName()).hlen()
-                .intValue();
+        Map<K, V> entries = preloaded;
+        if (entries != null) {
+            return entries.size();
+        }
+        return store().hlen().intValue();
     }
 
     public Collection<V> values() {
         return scrollElements().values();
     }
 
+    /**
+     * Queue the read of the persisted entries as they are stored in Redis.
+     */
+    public void readStored(Pipeline commands) {
+        commands.hgetAll(store().keyBytes());
+    }
+
+    /**
+     * Serve the given entries, as prefetched by a FetchPlan, instead of
+     * reading them from Redis until this map is modified.
+     */
+    public void preload(Map<K, V> entries) {
+        Map<String, V> values = new HashMap<String, V>();
+        for (Map.Entry<K, V> entry : entries.entrySet()) {
+            values.put(hashField(entry.getKey()), entry.getValue());
+        }
+        preloaded = entries;
+        preloadedValues = values;
+    }
+
+    /**
+     * The hash field the given key is stored as: its id for a Model key.
+     */
+    private String hashField(final Object key) {
+        if (johmKeyType == JOhmCollectionDataType.MODEL) {
+            return String.valueOf(JOhmUtils.getId(key));
+        }
+        return String.valueOf(key);
+    }
+
     private V internalPut(final K key, final V value) {
+        preloaded = null;
+        preloadedValues = null;
         Map<String, String> hash = new LinkedHashMap<String, String>();
         String keyString = null;
         String valueString = null;
@@ -189,15 +238,17 @@ public class RedisMap<K, V> implements Map<K, V> {
         }
 
         hash.put(keyString, valueString);
-        nest.cat(JOhmUtils.getId(owner)).cat(field.getName()).hmset(hash);
+        store().hmset(hash);
         indexValue(key);
         return value;
     }
 
     @SuppressWarnings("unchecked")
     private synchronized Map<K, V> scrollElements() {
-        Map<String, String> savedHash = nest.cat(JOhmUtils.getId(owner)).cat(
-                field.getName()).hgetAll();
+        if (preloaded != null) {
+            return new HashMap<K, V>(preloaded);
+        }
+        Map<String, String> savedHash = store().hgetAll();
         Map<K, V> backingMap = new HashMap<K, V>();
         K savedKey = null;
         V savedValue = null;
@@ -233,4 +284,19 @@ public class RedisMap<K, V> implements Map<K, V> {
 
         return backingMap;
     }
+
+    private Nest<?> store() {
+        if (store == null) {
+            store = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
+                    .fork();
+        }
+        return store;
+    }
+
+    private Nest<?> index() {
+        if (index == null) {
+            index = nest.cat(field.getName()).fork();
+        }
+        return index;
+    }
 }
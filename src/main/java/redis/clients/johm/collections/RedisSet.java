@@ -6,10 +6,11 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
-import redis.clients.johm.Indexed;
 import redis.clients.johm.JOhm;
 import redis.clients.johm.JOhmUtils;
+import redis.clients.johm.ModelMetadata;
 import redis.clients.johm.Nest;
+import redis.clients.johm.Pipeline;
 import redis.clients.johm.JOhmUtils.Convertor;
 import redis.clients.johm.JOhmUtils.JOhmCollectionDataType;
 
@@ -28,7 +29,14 @@ public class RedisSet<T> implements Set<T> {
     private final Class<? extends T> elementClazz;
     private final JOhmCollectionDataType johmElementType;
     private final Object owner;
+    private final boolean isIndexed;
     private final Field field;
+    // the elements as prefetched by a FetchPlan, until this set is modified
+    private Set<T> preloaded;
+    // the Nests of the stored collection and of its index entries, built on
+    // first use
+    private Nest<?> store;
+    private Nest<?> index;
 
     public RedisSet(final Class<? extends T> clazz,
             final Nest<? extends T> nest, Field field, Object owner) {
@@ -37,35 +45,39 @@ public class RedisSet<T> implements Set<T> {
         this.nest = nest;
         this.field = field;
         this.owner = owner;
+        isIndexed = ModelMetadata.forModel(owner).isIndexed(field);
     }
 
     private void indexValue(T element) {
-        if (field.isAnnotationPresent(Indexed.class)) {
+        if (isIndexed) {
             if (johmElementType == JOhmCollectionDataType.PRIMITIVE) {
-                nest.cat(field.getName()).cat(element.toString()).sadd(
+                index().cat(element.toString()).sadd(
                         JOhmUtils.getId(owner).toString());
             } else if (johmElementType == JOhmCollectionDataType.MODEL) {
-                nest.cat(field.getName()).cat(JOhmUtils.getId(element)).sadd(
+                index().cat(JOhmUtils.getId(element)).sadd(
                         JOhmUtils.getId(owner).toString());
             }
         }
     }
 
     private void unindexValue(T element) {
-        if (field.isAnnotationPresent(Indexed.class)) {
+        if (isIndexed) {
             if (johmElementType == JOhmCollectionDataType.PRIMITIVE) {
-                nest.cat(field.getName()).cat(element.toString()).srem(
+                index().cat(element.toString()).srem(
                         JOhmUtils.getId(owner).toString());
             } else if (johmElementType == JOhmCollectionDataType.MODEL) {
-                nest.cat(field.getName()).cat(JOhmUtils.getId(element)).srem(
+                index().cat(JOhmUtils.getId(element)).srem(
                         JOhmUtils.getId(owner).toString());
             }
         }
     }
 
     public int size() {
-        return nest.cat(JOhmUtils.getId(owner)).cat(field.getName()).smembers()
-                .size();
+        Set<T> elements = preloaded;
+        if (elements != null) {
+            return elements.size();
+        }
+        return store().smembers().size();
     }
 
     public boolean isEmpty() {
@@ -134,18 +146,33 @@ public class RedisSet<T> implements Set<T> {
     }
 
     public void clear() {
-        nest.cat(JOhmUtils.getId(owner)).cat(field.getName()).del();
+        preloaded = null;
+        store().del();
+    }
+
+    /**
+     * Queue the read of the persisted elements as they are stored in Redis.
+     */
+    public void readStored(Pipeline commands) {
+        commands.smembers(store().keyBytes());
+    }
+
+    /**
+     * Serve the given elements, as prefetched by a FetchPlan, instead of
+     * reading them from Redis until this set is modified.
+     */
+    public void preload(Set<T> elements) {
+        preloaded = elements;
     }
 
     private boolean internalAdd(T element) {
         boolean success = false;
         if (element != null) {
+            preloaded = null;
             if (johmElementType == JOhmCollectionDataType.PRIMITIVE) {
-                success = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
-                        .sadd(element.toString()) > 0;
+                success = store().sadd(element.toString()) > 0;
             } else if (johmElementType == JOhmCollectionDataType.MODEL) {
-                success = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
-                        .sadd(JOhmUtils.getId(element).toString()) > 0;
+                success = store().sadd(JOhmUtils.getId(element).toString()) > 0;
             }
             indexValue(element);
         }
@@ -155,12 +182,11 @@ public class RedisSet<T> implements Set<T> {
     private boolean internalRemove(T element) {
         boolean success = false;
         if (element != null) {
+            preloaded = null;
             if (johmElementType == JOhmCollectionDataType.PRIMITIVE) {
-                success = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
-                        .srem(element.toString()) > 0;
+                success = store().srem(element.toString()) > 0;
             } else if (johmElementType == JOhmCollectionDataType.MODEL) {
-                success = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
-                        .srem(JOhmUtils.getId(element).toString()) > 0;
+                success = store().srem(JOhmUtils.getId(element).toString()) > 0;
             }
             unindexValue(element);
         }
@@ -169,8 +195,10 @@ public class RedisSet<T> implements Set<T> {
 
     @SuppressWarnings("unchecked")
     private synchronized Set<T> scrollElements() {
-        Set<String> keys = nest.cat(JOhmUtils.getId(owner))
-                .cat(field.getName()).smembers();
+        if (preloaded != null) {
+            return new HashSet<T>(preloaded);
+        }
+        Set<String> keys = store().smembers();
         Set<T> elements = new HashSet<T>();
         for (String key : keys) {
             if (johmElementType == JOhmCollectionDataType.PRIMITIVE) {
@@ -181,4 +209,19 @@ public class RedisSet<T> implements Set<T> {
         }
         return elements;
     }
+
+    private Nest<?> store() {
+        if (store == null) {
+            store = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
+                    .fork();
+        }
+        return store;
+    }
+
+    private Nest<?> index() {
+        if (index == null) {
+            index = nest.cat(field.getName()).fork();
+        }
+        return index;
+    }
 }
\ No newline at end of file
@@ -6,11 +6,12 @@ import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
-import redis.clients.johm.Indexed;
 import redis.clients.johm.JOhm;
 import redis.clients.johm.JOhmException;
 import redis.clients.johm.JOhmUtils;
+import redis.clients.johm.ModelMetadata;
 import redis.clients.johm.Nest;
+import redis.clients.johm.Pipeline;
 
 /**
  * RedisSortedSet is a JOhm-internal SortedSet implementation to serve as a
@@ -21,7 +22,14 @@ public class RedisSortedSet<T> implements Set<T> {
     private final Class<? extends T> clazz;
     private final Field field;
     private final Object owner;
+    private final boolean isIndexed;
     private final String byFieldName;
+    // the elements as prefetched by a FetchPlan, until this set is modified
+    private Set<T> preloaded;
+    // the Nests of the stored collection and of its index entries, built on
+    // first use
+    private Nest<?> store;
+    private Nest<?> index;
 
     public RedisSortedSet(Class<? extends T> clazz, String byField,
             Nest<? extends T> nest, Field field, Object owner) {
@@ -29,13 +37,16 @@ public class RedisSortedSet<T> implements Set<T> {
         this.nest = nest;
         this.field = field;
         this.owner = owner;
+        isIndexed = ModelMetadata.forModel(owner).isIndexed(field);
         this.byFieldName = byField;
     }
 
     @SuppressWarnings("unchecked")
     private synchronized Set<T> scrollElements() {
-        Set<String> ids = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
-                .zrange(0, -1);
+        if (preloaded != null) {
+            return new LinkedHashSet<T>(preloaded);
+        }
+        Set<String> ids = store().zrange(0, -1);
         Set<T> elements = new LinkedHashSet<T>();
         for (String id : ids) {
             elements.add((T) JOhm.get(clazz, Integer.valueOf(id)));
@@ -44,42 +55,54 @@ public class RedisSortedSet<T> implements Set<T> {
     }
 
     private void indexValue(T element) {
-        if (field.isAnnotationPresent(Indexed.class)) {
-            nest.cat(field.getName()).cat(JOhmUtils.getId(element)).sadd(
+        if (isIndexed) {
+            index().cat(JOhmUtils.getId(element)).sadd(
                     JOhmUtils.getId(owner).toString());
         }
     }
 
     private void unindexValue(T element) {
-        if (field.isAnnotationPresent(Indexed.class)) {
-            nest.cat(field.getName()).cat(JOhmUtils.getId(element)).srem(
+        if (isIndexed) {
+            index().cat(JOhmUtils.getId(element)).srem(
                     JOhmUtils.getId(owner).toString());
         }
     }
 
+    /**
+     * Queue the read of the persisted elements as they are stored in Redis.
+     */
+    public void readStored(Pipeline commands) {
+        commands.zrange(store().keyBytes(), 0, -1);
+    }
+
+    /**
+     * Serve the given elements, as prefetched by a FetchPlan, instead of
+     * reading them from Redis until this set is modified.
+     */
+    public void preload(Set<T> elements) {
+        preloaded = elements;
+    }
+
     private boolean internalAdd(T element) {
         boolean success = false;
         if (element != null) {
+            preloaded = null;
+            ModelMetadata metadata = ModelMetadata.forModel(element);
+            Field byField = metadata.getField(byFieldName);
+            if (byField == null) {
+                throw new JOhmException(element.getClass().getSimpleName()
+                        + " has no field named " + byFieldName);
+            }
             try {
-                Field byField = element.getClass()
-                        .getDeclaredField(byFieldName);
-                byField.setAccessible(true);
-                Object fieldValue = byField.get(element);
+                Object fieldValue = metadata.getAccessor(byField).get(element);
                 if (fieldValue == null) {
                     fieldValue = 0f;
                 }
-                success = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
-                        .zadd(Float.class.cast(fieldValue),
+                success = store().zadd(Float.class.cast(fieldValue),
                                 JOhmUtils.getId(element).toString()) > 0;
                 indexValue(element);
-            } catch (SecurityException e) {
-                throw new JOhmException(e);
             } catch (IllegalArgumentException e) {
                 throw new JOhmException(e);
-            } catch (IllegalAccessException e) {
-                throw new JOhmException(e);
-            } catch (NoSuchFieldException e) {
-                throw new JOhmException(e);
             }
         }
         return success;
@@ -88,8 +111,8 @@ public class RedisSortedSet<T> implements Set<T> {
     private boolean internalRemove(T element) {
         boolean success = false;
         if (element != null) {
-            success = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
-                    .srem(JOhmUtils.getId(element).toString()) > 0;
+            preloaded = null;
+            success = store().srem(JOhmUtils.getId(element).toString()) > 0;
             unindexValue(element);
         }
         return success;
@@ -108,7 +131,8 @@ public class RedisSortedSet<T> implements Set<T> {
     }
 
     public void clear() {
-        nest.cat(JOhmUtils.getId(owner)).cat(field.getName()).del();
+        preloaded = null;
+        store().del();
     }
 
     public boolean contains(Object o) {
@@ -157,8 +181,11 @@ public class RedisSortedSet<T> implements Set<T> {
     }
 
     public int size() {
-        return nest.cat(JOhmUtils.getId(owner)).cat(field.getName()).zcard()
-                .intValue();
+        Set<T> elements = preloaded;
+        if (elements != null) {
+            return elements.size();
+        }
+        return store().zcard().intValue();
     }
 
     public Object[] toArray() {
@@ -169,4 +196,19 @@ public class RedisSortedSet<T> implements Set<T> {
     public <T> T[] toArray(T[] a) {
         return scrollElements().toArray(a);
     }
+
+    private Nest<?> store() {
+        if (store == null) {
+            store = nest.cat(JOhmUtils.getId(owner)).cat(field.getName())
+                    .fork();
+        }
+        return store;
+    }
+
+    private Nest<?> index() {
+        if (index == null) {
+            index = nest.cat(field.getName()).fork();
+        }
+        return index;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package redis.clients.johm;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.johm.models.Country;
+import redis.clients.johm.models.Item;
+import redis.clients.johm.models.User;
+
+public class BackendTest extends JOhmTestBase {
+    @Test
+    public void runsOnPluggedBackend() {
+        InMemoryBackend backend = new InMemoryBackend();
+        JOhm.setBackend(backend);
+
+        Country country = new Country();
+        country.setName("Argentina");
+        JOhm.save(country);
+        Item item0 = new Item();
+        item0.setName("foo");
+        item0.setPrice(2.5f);
+        JOhm.save(item0);
+        Item item1 = new Item();
+        item1.setName("bar");
+        item1.setPrice(1.5f);
+        JOhm.save(item1);
+        User user = new User();
+        user.setName("foo");
+        user.setAge(33);
+        user.setCountry(country);
+        user.setThreeLatestPurchases(new Item[] { item0, item1 });
+        JOhm.save(user);
+        user.getLikes().add(item0);
+        user.getLikes().add(item1);
+        user.getPurchases().add(item1);
+        user.getOrderedPurchases().add(item0);
+        user.getOrderedPurchases().add(item1);
+        user.getFavoritePurchases().put(1, item0);
+
+        User savedUser = JOhm.get(User.class, user.getId());
+        assertEquals("foo", savedUser.getName());
+        assertEquals(33, savedUser.getAge());
+        assertEquals("Argentina", savedUser.getCountry().getName());
+        assertEquals(item1, savedUser.getThreeLatestPurchases()[1]);
+        assertEquals(2, savedUser.getLikes().size());
+        assertEquals(item0, savedUser.getLikes().get(0));
+        assertTrue(savedUser.getPurchases().contains(item1));
+        assertEquals(item1, savedUser.getOrderedPurchases().iterator().next());
+        assertEquals(item0, savedUser.getFavoritePurchases().get(1));
+
+        List<User> users = JOhm.find(User.class, "age", 33);
+        assertEquals(1, users.size());
+        assertEquals(user.getId(), users.get(0).getId());
+        assertEquals(1, JOhm.getAll(User.class).size());
+
+        assertTrue(JOhm.delete(User.class, user.getId()));
+        assertNull(JOhm.get(User.class, user.getId()));
+        assertTrue(JOhm.find(User.class, "age", 33).isEmpty());
+        assertTrue(backend.getCommands() > 0);
+
+        Jedis jedis = jedisPool.getResource();
+        assertEquals(0, jedis.dbSize().longValue());
+        jedisPool.returnResource(jedis);
+    }
+
+    @Test
+    public void reusesBackendOfPool() {
+        JedisBackend backend = JedisBackend.forPool(jedisPool);
+        assertSame(backend, JedisBackend.forPool(jedisPool));
+        assertEquals(backend, new JedisBackend(jedisPool));
+    }
+
+    @Test(expected = JOhmException.class)
+    public void backendIsMandatory() {
+        JOhm.setBackend(null);
+    }
+}
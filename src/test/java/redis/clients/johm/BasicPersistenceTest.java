@@ -1,12 +1,17 @@
 package redis.clients.johm;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import org.junit.Test;
 
+import redis.clients.jedis.Jedis;
 import redis.clients.johm.models.Country;
 import redis.clients.johm.models.FaultyModel;
 import redis.clients.johm.models.Item;
+import redis.clients.johm.models.Person;
 import redis.clients.johm.models.User;
 
 public class BasicPersistenceTest extends JOhmTestBase {
@@ -25,6 +30,36 @@ public class BasicPersistenceTest extends JOhmTestBase {
         assertEquals(user.getAge(), savedUser.getAge());
     }
 
+    @Test
+    public void update() {
+        Country country = new Country();
+        country.setName("Argentina");
+        JOhm.save(country);
+
+        User user = new User();
+        user.setName("foo");
+        user.setAge(33);
+        user.setCountry(country);
+        JOhm.save(user);
+
+        user.setName(null);
+        user.setAge(34);
+        user.setCountry(null);
+        JOhm.save(user);
+        JOhm.save(user); // nothing changed
+
+        User savedUser = JOhm.get(User.class, user.getId());
+        assertNull(savedUser.getName());
+        assertEquals(34, savedUser.getAge());
+        assertNull(savedUser.getCountry());
+        assertEquals(0, JOhm.find(User.class, "name", "foo").size());
+        assertEquals(0, JOhm.find(User.class, "age", 33).size());
+        assertEquals(1, JOhm.find(User.class, "age", 34).size());
+        assertEquals(0, JOhm.find(User.class, "country", country.getId())
+                .size());
+        assertEquals(1, JOhm.getAll(User.class).size());
+    }
+
     @Test
     public void saveWithArray() {
         Item item0 = new Item();
@@ -149,6 +184,43 @@ public class BasicPersistenceTest extends JOhmTestBase {
         assertNull(JOhm.get(User.class, id));
     }
 
+    @Test
+    public void deleteRemovesFromAll() {
+        User user1 = new User();
+        user1.setName("foo");
+        JOhm.save(user1);
+        User user2 = new User();
+        user2.setName("bar");
+        JOhm.save(user2);
+
+        assertTrue(JOhm.delete(User.class, user1.getId()));
+        assertFalse(JOhm.delete(User.class, user1.getId()));
+        Jedis jedis = jedisPool.getResource();
+        assertEquals(1, jedis.scard("User:all").intValue());
+        jedisPool.returnResource(jedis);
+        Set<User> users = JOhm.getAll(User.class);
+        assertEquals(1, users.size());
+        assertEquals("bar", users.iterator().next().getName());
+        assertTrue(JOhm.find(User.class, "name", "foo").isEmpty());
+    }
+
+    @Test
+    public void deleteCyclicChildren() {
+        Person person1 = new Person();
+        person1.setName("foo");
+        JOhm.save(person1);
+        Person person2 = new Person();
+        person2.setName("bar");
+        person2.setPartner(person1);
+        JOhm.save(person2);
+        person1.setPartner(person2);
+        JOhm.save(person1);
+
+        assertTrue(JOhm.delete(Person.class, person1.getId(), true, true));
+        assertNull(JOhm.get(Person.class, person1.getId()));
+        assertNull(JOhm.get(Person.class, person2.getId()));
+    }
+
     @Test
     public void shouldNotPersistFieldsWithoutAttributeAnnotation() {
         User user = new User();
@@ -219,4 +291,115 @@ public class BasicPersistenceTest extends JOhmTestBase {
         Set<User> users = JOhm.getAll(User.class);
         assertEquals(2, users.size());
     }
+
+    @Test
+    public void getAllByIds() {
+        Country country = new Country();
+        country.setName("Argentina");
+        JOhm.save(country);
+        Item item = new Item();
+        item.setName("Foo");
+        JOhm.save(item);
+
+        User user1 = new User();
+        user1.setName("foo");
+        user1.setCountry(country);
+        user1.setThreeLatestPurchases(new Item[] { item });
+        JOhm.save(user1);
+        User user2 = new User();
+        user2.setName("bar");
+        user2.setAge(22);
+        user2.setCountry(country);
+        JOhm.save(user2);
+
+        List<User> users = JOhm.getAll(User.class, user2.getId(), 1000L,
+                user1.getId());
+        assertEquals(2, users.size());
+        User savedUser2 = users.get(0);
+        User savedUser1 = users.get(1);
+        assertEquals(user2.getId(), savedUser2.getId());
+        assertEquals("bar", savedUser2.getName());
+        assertEquals(22, savedUser2.getAge());
+        assertEquals(user1.getId(), savedUser1.getId());
+        assertEquals("foo", savedUser1.getName());
+
+        assertEquals(country, savedUser1.getCountry());
+        assertSame(savedUser1.getCountry(), savedUser2.getCountry());
+        assertEquals(item.getId(), savedUser1.getThreeLatestPurchases()[0]
+                .getId());
+        assertNull(savedUser1.getThreeLatestPurchases()[1]);
+        assertNull(savedUser2.getThreeLatestPurchases()[0]);
+        assertEquals(3, savedUser2.getThreeLatestPurchases().length);
+        assertNotNull(savedUser1.getLikes());
+
+        assertTrue(JOhm.getAll(User.class, new ArrayList<Long>()).isEmpty());
+    }
+
+    @Test
+    public void saveAll() {
+        Country country = new Country();
+        country.setName("Argentina");
+        User existingUser = new User();
+        existingUser.setName("foo");
+        JOhm.save(existingUser);
+        existingUser.setName("bar");
+
+        List<Object> models = new ArrayList<Object>();
+        models.add(country);
+        models.add(existingUser);
+        for (int n = 0; n < 3; n++) {
+            User user = new User();
+            user.setName("foo" + n);
+            user.setAge(n);
+            // referencing a model saved in the same batch
+            user.setCountry(country);
+            models.add(user);
+        }
+        models.add(existingUser);
+        JOhm.saveAll(models);
+
+        assertNotNull(country.getId());
+        assertEquals(4, JOhm.getAll(User.class).size());
+        assertEquals(0, JOhm.find(User.class, "name", "foo").size());
+        assertEquals(1, JOhm.find(User.class, "name", "bar").size());
+        for (int n = 0; n < 3; n++) {
+            User user = (User) models.get(n + 2);
+            User savedUser = JOhm.get(User.class, user.getId());
+            assertEquals("foo" + n, savedUser.getName());
+            assertEquals(n, savedUser.getAge());
+            assertEquals(country, savedUser.getCountry());
+            assertNotNull(user.getLikes());
+        }
+        assertEquals(existingUser.getId() + 1, ((User) models.get(2))
+                .getId().longValue());
+    }
+
+    @Test
+    public void iterateAll() {
+        assertFalse(JOhm.iterateAll(User.class).hasNext());
+
+        JOhm.setBatchSize(3);
+        try {
+            List<Long> ids = new ArrayList<Long>();
+            for (int n = 0; n < 10; n++) {
+                User user = new User();
+                user.setName("foo" + n);
+                JOhm.save(user);
+                ids.add(user.getId());
+            }
+            JOhm.delete(User.class, ids.remove(3));
+            JOhm.delete(User.class, ids.remove(3));
+
+            List<Long> iteratedIds = new ArrayList<Long>();
+            Iterator<User> users = JOhm.iterateAll(User.class);
+            while (users.hasNext()) {
+                User user = users.next();
+                assertNotNull(user.getName());
+                iteratedIds.add(user.getId());
+            }
+            assertEquals(ids, iteratedIds);
+        } finally {
+            JOhm.setBatchSize(1000);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,189 @@
+package redis.clients.johm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.pool.impl.GenericObjectPool;
+import org.apache.commons.pool.impl.GenericObjectPool.Config;
+import org.junit.After;
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Protocol;
+import redis.clients.johm.models.Item;
+import redis.clients.johm.models.User;
+
+public class CacheInvalidatorTest extends JOhmTestBase {
+    private static final String CHANNEL = "johm:test:invalidations";
+
+    // two processes sharing the channel
+    private final ModelCache cache = new ModelCache(1000);
+    private final ModelCache otherCache = new ModelCache(1000);
+    private CacheInvalidator invalidator;
+    private CacheInvalidator otherInvalidator;
+
+    @After
+    public void stopInvalidators() {
+        JOhm.setModelCache(null);
+        if (invalidator != null) {
+            invalidator.stop();
+        }
+        if (otherInvalidator != null) {
+            otherInvalidator.stop();
+        }
+    }
+
+    @Test
+    public void relaysWritesToOtherCaches() throws InterruptedException {
+        startInvalidators(0);
+        User user = new User();
+        user.setName("foo");
+        JOhm.setModelCache(otherCache);
+        JOhm.save(user);
+        JOhm.get(User.class, user.getId());
+        assertEquals(1, otherCache.size());
+
+        JOhm.setModelCache(cache);
+        user.setName("bar");
+        JOhm.save(user);
+        awaitEmpty(otherCache);
+        JOhm.setModelCache(otherCache);
+        User savedUser = JOhm.get(User.class, user.getId());
+        assertEquals("bar", savedUser.getName());
+
+        JOhm.setModelCache(cache);
+        JOhm.delete(User.class, user.getId());
+        awaitEmpty(otherCache);
+        // its own writes are not relayed back to a cache
+        assertEquals(1, invalidator.getKeysReceived());
+        assertEquals(2, otherInvalidator.getKeysReceived());
+    }
+
+    @Test
+    public void coalescesBulkWrites() throws InterruptedException {
+        startInvalidators(50);
+        JOhm.setModelCache(cache);
+        List<Item> items = new ArrayList<Item>();
+        for (int n = 0; n < 2500; n++) {
+            Item item = new Item();
+            item.setName("item" + n);
+            items.add(item);
+        }
+        JOhm.saveAll(items);
+        awaitReceived(2500);
+        assertTrue(invalidator.getMessagesPublished() <= 6);
+    }
+
+    @Test
+    public void coalescesRepeatedWrites() throws InterruptedException {
+        startInvalidators(500);
+        JOhm.setModelCache(cache);
+        User user = new User();
+        for (int n = 0; n < 100; n++) {
+            user.setName("foo" + n);
+            JOhm.save(user);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (invalidator.getKeysPublished() == 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(invalidator.getKeysPublished() < 50);
+    }
+
+    @Test
+    public void clearsCacheOnSubscribe() {
+        cache.put("User:1", cache.generation("User:1"), User.class,
+                new java.util.HashMap<String, String>(),
+                new ArrayList<List<String>>());
+        invalidator = new CacheInvalidator(cache, jedisPool, CHANNEL, 0);
+        invalidator.start();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void retriesAfterUnexpectedFailures() throws InterruptedException {
+        // every other connection fails with something other than Jedis'
+        // exceptions, first for the subscriber, then for the publisher
+        JedisPool flakyPool = new JedisPool(new Config(), "localhost",
+                Protocol.DEFAULT_PORT, 2000) {
+            private final AtomicInteger borrows = new AtomicInteger();
+
+            @Override
+            public Jedis getResource() {
+                if (borrows.incrementAndGet() % 2 == 1) {
+                    throw new IllegalStateException("unexpected");
+                }
+                return super.getResource();
+            }
+        };
+        invalidator = new CacheInvalidator(cache, flakyPool, CHANNEL, 0);
+        invalidator.start();
+        otherInvalidator = new CacheInvalidator(otherCache, jedisPool,
+                CHANNEL, 0);
+        otherInvalidator.start();
+
+        JOhm.setModelCache(cache);
+        User user = new User();
+        user.setName("foo");
+        JOhm.save(user);
+        awaitReceived(1);
+    }
+
+    @Test
+    public void subscribesWithoutHoldingPoolConnections()
+            throws InterruptedException {
+        Config config = new Config();
+        config.maxActive = 1;
+        config.whenExhaustedAction = GenericObjectPool.WHEN_EXHAUSTED_FAIL;
+        JedisPool smallPool = new JedisPool(config, "localhost",
+                Protocol.DEFAULT_PORT, 2000);
+        invalidator = new CacheInvalidator(cache, smallPool, CHANNEL, 0);
+        invalidator.start();
+        Jedis jedis = smallPool.getResource();
+        smallPool.returnResource(jedis);
+
+        otherInvalidator = new CacheInvalidator(otherCache, jedisPool,
+                CHANNEL, 0);
+        otherInvalidator.start();
+        JOhm.setModelCache(otherCache);
+        User user = new User();
+        user.setName("foo");
+        JOhm.save(user);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (invalidator.getKeysReceived() == 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, invalidator.getKeysReceived());
+    }
+
+    private void startInvalidators(long coalesceWindow) {
+        invalidator = new CacheInvalidator(cache, jedisPool, CHANNEL,
+                coalesceWindow);
+        invalidator.start();
+        otherInvalidator = new CacheInvalidator(otherCache, jedisPool, CHANNEL,
+                coalesceWindow);
+        otherInvalidator.start();
+    }
+
+    private void awaitReceived(long keys) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (otherInvalidator.getKeysReceived() < keys
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(keys, otherInvalidator.getKeysReceived());
+    }
+
+    private void awaitEmpty(ModelCache modelCache) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (modelCache.size() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, modelCache.size());
+    }
+}
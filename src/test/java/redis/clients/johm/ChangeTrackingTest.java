@@ -0,0 +1,88 @@
+package redis.clients.johm;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.johm.models.Item;
+import redis.clients.johm.models.User;
+
+public class ChangeTrackingTest extends JOhmTestBase {
+    @Before
+    public void enableChangeTracking() {
+        JOhm.setChangeTracking(true);
+    }
+
+    @After
+    public void disableChangeTracking() {
+        JOhm.setChangeTracking(false);
+    }
+
+    @Test
+    public void savesOnlyChangedAttributes() {
+        User user = new User();
+        user.setName("foo");
+        user.setAge(33);
+        JOhm.save(user);
+
+        User loadedUser = JOhm.get(User.class, user.getId());
+        // a change the snapshot of loadedUser does not know about
+        Jedis jedis = jedisPool.getResource();
+        jedis.hset("User:" + user.getId(), "salary", "9.5");
+        jedisPool.returnResource(jedis);
+
+        loadedUser.setAge(34);
+        JOhm.save(loadedUser);
+
+        User savedUser = JOhm.get(User.class, user.getId());
+        assertEquals(34, savedUser.getAge());
+        assertEquals("foo", savedUser.getName());
+        // untouched by the partial write
+        assertEquals(9.5f, savedUser.getSalary(), 0);
+        assertEquals(0, JOhm.find(User.class, "age", 33).size());
+        assertEquals(1, JOhm.find(User.class, "age", 34).size());
+    }
+
+    @Test
+    public void tracksArrays() {
+        Item item0 = new Item();
+        item0.setName("Foo0");
+        JOhm.save(item0);
+        Item item1 = new Item();
+        item1.setName("Foo1");
+        JOhm.save(item1);
+
+        User user = new User();
+        user.setThreeLatestPurchases(new Item[] { item0 });
+        JOhm.save(user);
+
+        User loadedUser = JOhm.get(User.class, user.getId());
+        loadedUser.setThreeLatestPurchases(new Item[] { item1, item0 });
+        JOhm.save(loadedUser);
+
+        User savedUser = JOhm.get(User.class, user.getId());
+        assertEquals(item1.getId(), savedUser.getThreeLatestPurchases()[0]
+                .getId());
+        assertEquals(item0.getId(), savedUser.getThreeLatestPurchases()[1]
+                .getId());
+        assertEquals(1, JOhm.find(User.class, "threeLatestPurchases",
+                item1.getId()).size());
+    }
+
+    @Test
+    public void forgetsDeletedModels() {
+        User user = new User();
+        user.setName("foo");
+        JOhm.save(user);
+        JOhm.delete(User.class, user.getId());
+
+        JOhm.save(user);
+
+        User savedUser = JOhm.get(User.class, user.getId());
+        assertNotNull(savedUser);
+        assertEquals("foo", savedUser.getName());
+        assertEquals(1, JOhm.find(User.class, "name", "foo").size());
+        assertEquals(1, JOhm.getAll(User.class).size());
+    }
+}
@@ -0,0 +1,182 @@
+package redis.clients.johm;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import redis.clients.johm.models.Country;
+import redis.clients.johm.models.Distribution;
+import redis.clients.johm.models.Item;
+import redis.clients.johm.models.Shipment;
+import redis.clients.johm.models.User;
+
+public class FetchPlanTest extends JOhmTestBase {
+    @Test
+    public void prefetchesNamedCollections() {
+        Item item1 = new Item();
+        item1.setName("foo");
+        item1.setPrice(1f);
+        JOhm.save(item1);
+        Item item2 = new Item();
+        item2.setName("bar");
+        item2.setPrice(2f);
+        JOhm.save(item2);
+        User user = new User();
+        user.setName("foo");
+        JOhm.save(user);
+        user.getLikes().add(item1);
+        user.getLikes().add(item2);
+        user.getPurchases().add(item2);
+        user.getFavoritePurchases().put(7, item1);
+        user.getOrderedPurchases().add(item2);
+        user.getOrderedPurchases().add(item1);
+
+        User savedUser = JOhm.get(User.class, user.getId(), FetchPlan.of(
+                "likes", "purchases", "favoritePurchases", "orderedPurchases"));
+        // prefetched collections no longer need Redis
+        purgeRedis();
+        assertEquals("foo", savedUser.getName());
+        assertEquals(2, savedUser.getLikes().size());
+        assertEquals("foo", savedUser.getLikes().get(0).getName());
+        assertEquals("bar", savedUser.getLikes().get(1).getName());
+        assertEquals(1, savedUser.getPurchases().size());
+        assertEquals(item2.getId(), savedUser.getPurchases().iterator().next()
+                .getId());
+        assertEquals(item1.getId(), savedUser.getFavoritePurchases().get(7)
+                .getId());
+        Item[] ordered = savedUser.getOrderedPurchases().toArray(new Item[0]);
+        assertEquals(item1.getId(), ordered[0].getId());
+        assertEquals(item2.getId(), ordered[1].getId());
+    }
+
+    @Test
+    public void modifiedCollectionsReadRedisAgain() {
+        Item item = new Item();
+        item.setName("foo");
+        JOhm.save(item);
+        User user = new User();
+        JOhm.save(user);
+        user.getLikes().add(item);
+
+        User savedUser = JOhm.get(User.class, user.getId(), FetchPlan
+                .of("likes"));
+        assertEquals(1, savedUser.getLikes().size());
+        savedUser.getLikes().add(item);
+        assertEquals(2, savedUser.getLikes().size());
+        savedUser.getLikes().remove(item);
+        assertEquals(1, JOhm.<User> get(User.class, user.getId()).getLikes()
+                .size());
+        assertEquals(1, savedUser.getLikes().size());
+    }
+
+    @Test
+    public void followsDottedPaths() {
+        Country country = new Country();
+        country.setName("Argentina");
+        JOhm.save(country);
+        Shipment first = new Shipment();
+        first.setName("first");
+        first.setDestination(country);
+        JOhm.save(first);
+        Shipment second = new Shipment();
+        second.setName("second");
+        second.setPrevious(first);
+        JOhm.save(second);
+
+        Shipment savedSecond = JOhm.get(Shipment.class, second.getId(),
+                FetchPlan.of("previous.destination"));
+        assertNull(savedSecond.getDestination());
+        assertTrue(savedSecond.getPrevious().isLoaded());
+        Shipment savedFirst = savedSecond.getPrevious().get();
+        assertEquals("first", savedFirst.getName());
+        assertTrue(savedFirst.getDestination().isLoaded());
+        assertEquals("Argentina", savedFirst.getDestination().get().getName());
+        assertNull(savedFirst.getPrevious());
+
+        Shipment shallow = JOhm.get(Shipment.class, second.getId(),
+                FetchPlan.of("previous"));
+        assertTrue(shallow.getPrevious().isLoaded());
+        assertFalse(shallow.getPrevious().get().getDestination().isLoaded());
+    }
+
+    @Test
+    public void appliesToBatches() {
+        Country country = new Country();
+        country.setName("Argentina");
+        JOhm.save(country);
+        Shipment first = new Shipment();
+        first.setDestination(country);
+        JOhm.save(first);
+        Shipment second = new Shipment();
+        second.setDestination(country);
+        JOhm.save(second);
+
+        List<Shipment> shipments = JOhm.getAll(Shipment.class, Arrays.asList(
+                first.getId(), second.getId(), 1000L), FetchPlan
+                .of("destination"));
+        assertEquals(2, shipments.size());
+        assertSame(shipments.get(0).getDestination().get(), shipments.get(1)
+                .getDestination().get());
+        assertEquals("Argentina", shipments.get(0).getDestination().get()
+                .getName());
+        assertNull(JOhm.get(Shipment.class, 1000L, FetchPlan
+                .of("destination")));
+    }
+
+    @Test
+    public void prefetchesElementsThroughCollections() {
+        Country country = new Country();
+        country.setName("Argentina");
+        JOhm.save(country);
+        Shipment shipment = new Shipment();
+        shipment.setName("books");
+        shipment.setDestination(country);
+        JOhm.save(shipment);
+        Shipment parent = new Shipment();
+        parent.setName("parent");
+        JOhm.save(parent);
+        parent.getLegs().add(shipment);
+
+        Shipment savedParent = JOhm.get(Shipment.class, parent.getId(),
+                FetchPlan.of("legs.destination"));
+        purgeRedis();
+        Shipment savedShipment = savedParent.getLegs().get(0);
+        assertEquals("books", savedShipment.getName());
+        assertEquals("Argentina", savedShipment.getDestination().get()
+                .getName());
+    }
+
+    @Test
+    public void prefetchedMapsFindModelKeysById() {
+        Shipment leg = new Shipment();
+        leg.setName("leg");
+        JOhm.save(leg);
+        Shipment shipment = new Shipment();
+        shipment.setName("books");
+        JOhm.save(shipment);
+        shipment.getTransitDays().put(leg, 3);
+
+        Shipment loaded = JOhm.get(Shipment.class, shipment.getId());
+        assertEquals(3, loaded.getTransitDays().get(leg).intValue());
+        Shipment prefetched = JOhm.get(Shipment.class, shipment.getId(),
+                FetchPlan.of("transitDays"));
+        assertEquals(3, prefetched.getTransitDays().get(leg).intValue());
+        assertNull(prefetched.getTransitDays().get(shipment));
+    }
+
+    @Test(expected = InvalidFieldException.class)
+    public void cannotPlanAttributes() {
+        JOhm.get(User.class, 1, FetchPlan.of("name"));
+    }
+
+    @Test(expected = InvalidFieldException.class)
+    public void cannotPlanUnknownFields() {
+        JOhm.get(User.class, 1, FetchPlan.of("country.foo"));
+    }
+
+    @Test(expected = InvalidFieldException.class)
+    public void cannotPlanThroughPrimitiveElements() {
+        JOhm.get(Distribution.class, 1, FetchPlan.of("countrySizes.foo"));
+    }
+}
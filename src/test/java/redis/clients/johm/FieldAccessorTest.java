@@ -0,0 +1,114 @@
+package redis.clients.johm;
+
+import java.lang.reflect.Field;
+
+import org.junit.After;
+import org.junit.Test;
+
+import redis.clients.johm.models.User;
+import redis.clients.util.SafeEncoder;
+
+public class FieldAccessorTest extends JOhmTestBase {
+    @After
+    public void restoreDefaultFactory() {
+        JOhm.setFieldAccessorFactory(null);
+    }
+
+    @Test
+    public void mapsPrimitiveAttributesThroughStrings() {
+        ModelMetadata metadata = ModelMetadata.forClass(User.class);
+        User user = new User();
+        FieldAccessor age = metadata.getAccessor(metadata.getField("age"));
+        age.setString(user, "42");
+        assertEquals(42, user.getAge());
+        assertEquals("42", age.getString(user));
+        age.setInt(user, 7);
+        assertEquals(7, age.getInt(user));
+
+        FieldAccessor salary = metadata.getAccessor(metadata
+                .getField("salary"));
+        salary.setString(user, "1.5");
+        assertEquals(1.5f, user.getSalary(), 0);
+        salary.setString(user, null);
+        assertEquals(0f, user.getSalary(), 0);
+
+        FieldAccessor initial = metadata.getAccessor(metadata
+                .getField("initial"));
+        initial.setString(user, "j");
+        assertEquals('j', user.getInitial());
+
+        FieldAccessor name = metadata.getAccessor(metadata.getField("name"));
+        name.setString(user, "foo");
+        assertEquals("foo", name.getString(user));
+        name.setString(user, null);
+        assertNull(name.getString(user));
+    }
+
+    @Test
+    public void mapsAttributesFromBytes() {
+        ModelMetadata metadata = ModelMetadata.forClass(User.class);
+        User user = new User();
+        FieldAccessor age = metadata.getAccessor(metadata.getField("age"));
+        age.setBytes(user, SafeEncoder.encode("-42"));
+        assertEquals(-42, user.getAge());
+        age.setBytes(user, SafeEncoder.encode("2147483647"));
+        assertEquals(Integer.MAX_VALUE, user.getAge());
+        age.setBytes(user, null);
+        assertEquals(0, user.getAge());
+        try {
+            age.setBytes(user, SafeEncoder.encode("2147483648"));
+            fail();
+        } catch (NumberFormatException e) {
+            // as Integer.parseInt()
+        }
+        try {
+            age.setBytes(user, SafeEncoder.encode("4x"));
+            fail();
+        } catch (NumberFormatException e) {
+            // as Integer.parseInt()
+        }
+
+        FieldAccessor salary = metadata.getAccessor(metadata
+                .getField("salary"));
+        salary.setBytes(user, SafeEncoder.encode("1.5"));
+        assertEquals(1.5f, user.getSalary(), 0);
+
+        FieldAccessor name = metadata.getAccessor(metadata.getField("name"));
+        name.setBytes(user, SafeEncoder.encode("\u00f1and\u00fa"));
+        assertEquals("\u00f1and\u00fa", user.getName());
+    }
+
+    @Test
+    public void usesPluggedFactory() {
+        final int[] writes = new int[1];
+        JOhm.setFieldAccessorFactory(new FieldAccessorFactory() {
+            public FieldAccessor accessorFor(final Field field) {
+                if (!field.getName().equals("name")) {
+                    return null;
+                }
+                final FieldAccessor delegate = new ReflectionFieldAccessorFactory()
+                        .accessorFor(field);
+                return new FieldAccessor(field) {
+                    public Object get(Object model) {
+                        return delegate.get(model);
+                    }
+
+                    public void set(Object model, Object value) {
+                        writes[0]++;
+                        delegate.set(model, value);
+                    }
+                };
+            }
+        });
+
+        User user = new User();
+        user.setName("foo");
+        user.setAge(3);
+        JOhm.save(user);
+
+        User savedUser = JOhm.get(User.class, user.getId());
+        assertEquals("foo", savedUser.getName());
+        assertEquals(3, savedUser.getAge());
+        assertEquals(1, writes[0]);
+    }
+}
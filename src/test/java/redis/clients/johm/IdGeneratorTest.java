@@ -0,0 +1,125 @@
+package redis.clients.johm;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.apache.commons.pool.impl.GenericObjectPool.Config;
+import org.junit.After;
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.johm.models.Item;
+import redis.clients.johm.models.User;
+
+public class IdGeneratorTest extends JOhmTestBase {
+    @After
+    public void removeGenerator() {
+        JOhm.setIdGenerator(null);
+    }
+
+    @Test
+    public void reservesBlocks() {
+        BlockIdGenerator generator = new BlockIdGenerator(10);
+        JOhm.setIdGenerator(generator);
+        for (int n = 1; n <= 15; n++) {
+            Item item = new Item();
+            item.setName("item" + n);
+            JOhm.save(item);
+            assertEquals(n, item.getId().longValue());
+        }
+        assertEquals("20", counter("Item:id"));
+        assertNull(counter("User:id"));
+
+        Item[] items = new Item[25];
+        for (int n = 0; n < items.length; n++) {
+            items[n] = new Item();
+            items[n].setName("bulk" + n);
+        }
+        JOhm.saveAll(Arrays.asList(items));
+        assertEquals(16, items[0].getId().longValue());
+        assertEquals(40, items[24].getId().longValue());
+        assertEquals("40", counter("Item:id"));
+        assertEquals("bulk24", JOhm.<Item> get(Item.class, 40).getName());
+    }
+
+    @Test
+    public void processesGetDistinctBlocks() {
+        BlockIdGenerator generator1 = new BlockIdGenerator(10);
+        BlockIdGenerator generator2 = new BlockIdGenerator(10);
+        Backend backend = new JedisBackend(jedisPool);
+        Set<Long> ids = new HashSet<Long>();
+        for (int n = 0; n < 30; n++) {
+            for (long id : generator1.allocate(User.class, 1, backend)) {
+                assertTrue(ids.add(id));
+            }
+            for (long id : generator2.allocate(User.class, 2, backend)) {
+                assertTrue(ids.add(id));
+            }
+        }
+        assertEquals(90, ids.size());
+    }
+
+    @Test
+    public void reservesAgainOnAnotherBackend() {
+        BlockIdGenerator generator = new BlockIdGenerator(10);
+        JOhm.setIdGenerator(generator);
+        Item item = new Item();
+        item.setName("foo");
+        JOhm.save(item);
+        assertEquals(1, item.getId().longValue());
+
+        JOhm.setBackend(new InMemoryBackend());
+        Item other = new Item();
+        other.setName("bar");
+        JOhm.save(other);
+        assertEquals(1, other.getId().longValue());
+        assertEquals("bar", JOhm.<Item> get(Item.class, 1).getName());
+
+        JOhm.setPool(new JedisPool(new Config(), "localhost"));
+        Item another = new Item();
+        another.setName("baz");
+        JOhm.save(another);
+        assertEquals(11, another.getId().longValue());
+        assertEquals("20", counter("Item:id"));
+    }
+
+    @Test
+    public void pluggable() {
+        JOhm.setIdGenerator(new IdGenerator() {
+            private long next = 1000;
+
+            public long[] allocate(Class<?> clazz, int count,
+                    Backend backend) {
+                long[] ids = new long[count];
+                for (int i = 0; i < count; i++) {
+                    ids[i] = next++;
+                }
+                return ids;
+            }
+
+            public long maxId(Class<?> clazz, Backend backend) {
+                return next - 1;
+            }
+        });
+        User user = new User();
+        user.setName("foo");
+        JOhm.save(user);
+        assertEquals(1000, user.getId().longValue());
+        assertEquals("foo", JOhm.<User> get(User.class, 1000).getName());
+        assertNull(counter("User:id"));
+
+        Iterator<User> users = JOhm.iterateAll(User.class);
+        assertEquals(1000, users.next().getId().longValue());
+        assertFalse(users.hasNext());
+    }
+
+    private String counter(String key) {
+        Jedis jedis = jedisPool.getResource();
+        String value = jedis.get(key);
+        jedisPool.returnResource(jedis);
+        return value;
+    }
+}
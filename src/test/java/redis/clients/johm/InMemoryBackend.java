@@ -0,0 +1,358 @@
+package redis.clients.johm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import redis.clients.util.SafeEncoder;
+
+/**
+ * A Backend that keeps everything in the JVM, with just enough of Redis'
+ * semantics for JOhm. Pipelines run their commands in order and hand back
+ * replies in the raw form Redis would send them.
+ */
+class InMemoryBackend implements Backend {
+    private final Map<String, Object> data = new HashMap<String, Object>();
+    private int commands;
+
+    synchronized int getCommands() {
+        return commands;
+    }
+
+    public synchronized String set(final byte[] key, final String value) {
+        commands++;
+        data.put(name(key), value);
+        return "OK";
+    }
+
+    public synchronized String get(final byte[] key) {
+        commands++;
+        return (String) data.get(name(key));
+    }
+
+    public Long incr(final byte[] key) {
+        return incrBy(key, 1);
+    }
+
+    public synchronized Long incrBy(final byte[] key, final long increment) {
+        commands++;
+        String value = (String) data.get(name(key));
+        long incremented = (value == null ? 0 : Long.parseLong(value))
+                + increment;
+        data.put(name(key), String.valueOf(incremented));
+        return incremented;
+    }
+
+    public synchronized Long del(final byte[] key) {
+        commands++;
+        return data.remove(name(key)) == null ? 0L : 1L;
+    }
+
+    public synchronized Boolean exists(final byte[] key) {
+        commands++;
+        return data.containsKey(name(key));
+    }
+
+    public synchronized String hmset(final byte[] key,
+            final Map<String, String> hash) {
+        commands++;
+        hash(key, true).putAll(hash);
+        return "OK";
+    }
+
+    public synchronized Map<String, String> hgetAll(final byte[] key) {
+        commands++;
+        return new HashMap<String, String>(hash(key, false));
+    }
+
+    public synchronized String hget(final byte[] key, final String field) {
+        commands++;
+        return hash(key, false).get(field);
+    }
+
+    public synchronized Long hdel(final byte[] key, final String field) {
+        commands++;
+        Map<String, String> hash = hash(key, false);
+        long removed = hash.remove(field) == null ? 0 : 1;
+        dropIfEmpty(key, hash);
+        return removed;
+    }
+
+    public synchronized Long hlen(final byte[] key) {
+        commands++;
+        return (long) hash(key, false).size();
+    }
+
+    public synchronized Set<String> hkeys(final byte[] key) {
+        commands++;
+        return new LinkedHashSet<String>(hash(key, false).keySet());
+    }
+
+    public synchronized Long sadd(final byte[] key, final String member) {
+        commands++;
+        return set(key, true).add(member) ? 1L : 0L;
+    }
+
+    public synchronized Long srem(final byte[] key, final String member) {
+        commands++;
+        Set<String> set = set(key, false);
+        long removed = set.remove(member) ? 1 : 0;
+        dropIfEmpty(key, set);
+        return removed;
+    }
+
+    public synchronized Set<String> smembers(final byte[] key) {
+        commands++;
+        return new LinkedHashSet<String>(set(key, false));
+    }
+
+    public synchronized Long rpush(final byte[] key, final String string) {
+        commands++;
+        List<String> list = list(key, true);
+        list.add(string);
+        return (long) list.size();
+    }
+
+    public synchronized String lset(final byte[] key, final int index,
+            final String value) {
+        commands++;
+        List<String> list = list(key, false);
+        list.set(index < 0 ? list.size() + index : index, value);
+        return "OK";
+    }
+
+    public synchronized String lindex(final byte[] key, final int index) {
+        commands++;
+        List<String> list = list(key, false);
+        int position = index < 0 ? list.size() + index : index;
+        return position < 0 || position >= list.size() ? null : list
+                .get(position);
+    }
+
+    public synchronized Long llen(final byte[] key) {
+        commands++;
+        return (long) list(key, false).size();
+    }
+
+    public synchronized Long lrem(final byte[] key, final int count,
+            final String value) {
+        commands++;
+        List<String> list = list(key, false);
+        long removed = 0;
+        while ((count == 0 || removed < count) && list.remove(value)) {
+            removed++;
+        }
+        dropIfEmpty(key, list);
+        return removed;
+    }
+
+    public synchronized List<String> lrange(final byte[] key,
+            final int start, final int end) {
+        commands++;
+        return range(list(key, false), start, end);
+    }
+
+    public synchronized Set<String> zrange(final byte[] key, final int start,
+            final int end) {
+        commands++;
+        return new LinkedHashSet<String>(range(sorted(key), start, end));
+    }
+
+    public synchronized Long zadd(final byte[] key, final double score,
+            final String member) {
+        commands++;
+        return sortedSet(key, true).put(member, score) == null ? 1L : 0L;
+    }
+
+    public synchronized Long zcard(final byte[] key) {
+        commands++;
+        return (long) sortedSet(key, false).size();
+    }
+
+    public synchronized List<Object> pipelined(final CommandBlock block) {
+        final List<Object> replies = new ArrayList<Object>();
+        block.setPipeline(new Pipeline() {
+            public void exists(final byte[] key) {
+                replies.add(InMemoryBackend.this.exists(key) ? 1L : 0L);
+            }
+
+            public void del(final byte[] key) {
+                replies.add(InMemoryBackend.this.del(key));
+            }
+
+            public void hgetAll(final byte[] key) {
+                List<String> flattened = new ArrayList<String>();
+                for (Map.Entry<String, String> entry : InMemoryBackend.this
+                        .hgetAll(key).entrySet()) {
+                    flattened.add(entry.getKey());
+                    flattened.add(entry.getValue());
+                }
+                replies.add(encode(flattened));
+            }
+
+            public void hmget(final byte[] key, final String... fields) {
+                List<String> values = new ArrayList<String>();
+                for (String field : fields) {
+                    values.add(hget(key, field));
+                }
+                replies.add(encode(values));
+            }
+
+            public void hmset(final byte[] key,
+                    final Map<byte[], byte[]> hash) {
+                Map<String, String> decoded = new HashMap<String, String>();
+                for (Map.Entry<byte[], byte[]> entry : hash.entrySet()) {
+                    decoded.put(SafeEncoder.encode(entry.getKey()),
+                            SafeEncoder.encode(entry.getValue()));
+                }
+                replies.add(InMemoryBackend.this.hmset(key, decoded));
+            }
+
+            public void hdel(final byte[] key, final String field) {
+                replies.add(InMemoryBackend.this.hdel(key, field));
+            }
+
+            public void sadd(final byte[] key, final String member) {
+                replies.add(InMemoryBackend.this.sadd(key, member));
+            }
+
+            public void srem(final byte[] key, final String member) {
+                replies.add(InMemoryBackend.this.srem(key, member));
+            }
+
+            public void smembers(final byte[] key) {
+                replies.add(encode(InMemoryBackend.this.smembers(key)));
+            }
+
+            public void sismember(final byte[] key, final String member) {
+                replies.add(InMemoryBackend.this.smembers(key).contains(
+                        member) ? 1L : 0L);
+            }
+
+            public void rpush(final byte[] key, final String string) {
+                replies.add(InMemoryBackend.this.rpush(key, string));
+            }
+
+            public void lrange(final byte[] key, final int start,
+                    final int end) {
+                replies.add(encode(InMemoryBackend.this.lrange(key, start,
+                        end)));
+            }
+
+            public void zrange(final byte[] key, final int start,
+                    final int end) {
+                replies.add(encode(InMemoryBackend.this.zrange(key, start,
+                        end)));
+            }
+        });
+        block.execute();
+        return replies;
+    }
+
+    /**
+     * Commands run one at a time anyway, so a transaction is just a pipeline.
+     */
+    public List<Object> pipelinedMulti(final CommandBlock block) {
+        return pipelined(block);
+    }
+
+    private static String name(final byte[] key) {
+        return SafeEncoder.encode(key);
+    }
+
+    private static List<byte[]> encode(final Iterable<String> strings) {
+        List<byte[]> encoded = new ArrayList<byte[]>();
+        for (String string : strings) {
+            encoded.add(string == null ? null : SafeEncoder.encode(string));
+        }
+        return encoded;
+    }
+
+    private static List<String> range(final List<String> list,
+            final int start, final int end) {
+        int from = Math.max(0, start < 0 ? list.size() + start : start);
+        int to = Math.min(list.size() - 1, end < 0 ? list.size() + end : end);
+        if (from > to) {
+            return new ArrayList<String>();
+        }
+        return new ArrayList<String>(list.subList(from, to + 1));
+    }
+
+    private List<String> sorted(final byte[] key) {
+        final Map<String, Double> scores = sortedSet(key, false);
+        List<String> members = new ArrayList<String>(scores.keySet());
+        Collections.sort(members, new Comparator<String>() {
+            public int compare(final String member1, final String member2) {
+                int byScore = scores.get(member1).compareTo(
+                        scores.get(member2));
+                return byScore != 0 ? byScore : member1.compareTo(member2);
+            }
+        });
+        return members;
+    }
+
+    private void dropIfEmpty(final byte[] key, final Object value) {
+        if (value instanceof Map<?, ?> && ((Map<?, ?>) value).isEmpty()
+                || value instanceof Set<?> && ((Set<?>) value).isEmpty()
+                || value instanceof List<?> && ((List<?>) value).isEmpty()) {
+            data.remove(name(key));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String> hash(final byte[] key, final boolean create) {
+        Map<String, String> hash = (Map<String, String>) data.get(name(key));
+        if (hash == null) {
+            hash = new LinkedHashMap<String, String>();
+            if (create) {
+                data.put(name(key), hash);
+            }
+        }
+        return hash;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> set(final byte[] key, final boolean create) {
+        Set<String> set = (Set<String>) data.get(name(key));
+        if (set == null) {
+            set = new LinkedHashSet<String>();
+            if (create) {
+                data.put(name(key), set);
+            }
+        }
+        return set;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> list(final byte[] key, final boolean create) {
+        List<String> list = (List<String>) data.get(name(key));
+        if (list == null) {
+            list = new LinkedList<String>();
+            if (create) {
+                data.put(name(key), list);
+            }
+        }
+        return list;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Double> sortedSet(final byte[] key,
+            final boolean create) {
+        Map<String, Double> sortedSet = (Map<String, Double>) data
+                .get(name(key));
+        if (sortedSet == null) {
+            sortedSet = new HashMap<String, Double>();
+            if (create) {
+                data.put(name(key), sortedSet);
+            }
+        }
+        return sortedSet;
+    }
+}
@@ -32,5 +32,7 @@ public class JOhmTestBase extends Assert {
         Jedis jedis = jedisPool.getResource();
         jedis.flushAll();
         jedisPool.returnResource(jedis);
+        // the id counters are gone with the blocks reserved from them
+        JOhm.setIdGenerator(null);
     }
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package redis.clients.johm;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import redis.clients.johm.models.Country;
+import redis.clients.johm.models.Shipment;
+
+public class LazyReferenceTest extends JOhmTestBase {
+    @Test
+    public void loadsReferenceOnFirstAccess() {
+        Country country = new Country();
+        country.setName("Argentina");
+        JOhm.save(country);
+        Shipment shipment = new Shipment();
+        shipment.setName("books");
+        shipment.setDestination(country);
+        JOhm.save(shipment);
+
+        Shipment savedShipment = JOhm.get(Shipment.class, shipment.getId());
+        LazyReference<Country> destination = savedShipment.getDestination();
+        assertFalse(destination.isLoaded());
+        assertEquals(country.getId(), destination.getId());
+        assertFalse(destination.isLoaded());
+        assertEquals("Argentina", destination.get().getName());
+        assertTrue(destination.isLoaded());
+        assertNull(savedShipment.getPrevious());
+    }
+
+    @Test
+    public void findsByLazyReference() {
+        Country country = new Country();
+        country.setName("Argentina");
+        JOhm.save(country);
+        Shipment shipment = new Shipment();
+        shipment.setDestination(country);
+        JOhm.save(shipment);
+        JOhm.save(new Shipment());
+
+        List<Shipment> shipments = JOhm.find(Shipment.class, "destination",
+                country.getId());
+        assertEquals(1, shipments.size());
+        assertEquals(shipment.getId(), shipments.get(0).getId());
+        LazyReference<Country> destination = shipments.get(0)
+                .getDestination();
+        assertFalse(destination.isLoaded());
+        assertEquals(country.getId(), destination.get().getId());
+    }
+
+    @Test
+    public void loadsReferenceCycles() {
+        Shipment first = new Shipment();
+        first.setName("first");
+        JOhm.save(first);
+        Shipment second = new Shipment();
+        second.setName("second");
+        second.setPrevious(first);
+        JOhm.save(second);
+        first.setPrevious(second);
+        JOhm.save(first);
+
+        Shipment savedFirst = JOhm.get(Shipment.class, first.getId());
+        Shipment savedSecond = savedFirst.getPrevious().get();
+        assertEquals("second", savedSecond.getName());
+        assertEquals(first.getId(), savedSecond.getPrevious().getId());
+        assertEquals("first", savedSecond.getPrevious().get().getName());
+    }
+
+    @Test
+    public void returnsNullForDeletedReference() {
+        Country country = new Country();
+        JOhm.save(country);
+        Shipment shipment = new Shipment();
+        shipment.setDestination(country);
+        JOhm.save(shipment);
+        JOhm.delete(Country.class, country.getId());
+
+        Shipment savedShipment = JOhm.get(Shipment.class, shipment.getId());
+        assertEquals(country.getId(), savedShipment.getDestination().getId());
+        assertNull(savedShipment.getDestination().get());
+    }
+
+    @Test
+    public void savesLoadedReferenceWithChildren() {
+        Country country = new Country();
+        country.setName("Argentina");
+        JOhm.save(country);
+        Shipment shipment = new Shipment();
+        shipment.setDestination(country);
+        JOhm.save(shipment);
+
+        Shipment savedShipment = JOhm.get(Shipment.class, shipment.getId());
+        savedShipment.getDestination().get().setName("Uruguay");
+        JOhm.save(savedShipment, true);
+        Country savedCountry = JOhm.get(Country.class, country.getId());
+        assertEquals("Uruguay", savedCountry.getName());
+    }
+
+    @Test(expected = MissingIdException.class)
+    public void cannotReferenceUnsavedModel() {
+        Shipment shipment = new Shipment();
+        shipment.setDestination(new Country());
+        JOhm.save(shipment);
+    }
+}
@@ -0,0 +1,353 @@
+package redis.clients.johm;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.johm.models.Country;
+import redis.clients.johm.models.Item;
+import redis.clients.johm.models.User;
+
+public class ModelCacheTest extends JOhmTestBase {
+    @After
+    public void removeCache() {
+        JOhm.setModelCache(null);
+    }
+
+    @Test
+    public void servesCachedModels() {
+        ModelCache cache = new ModelCache(100);
+        JOhm.setModelCache(cache);
+        Country country = new Country();
+        country.setName("Argentina");
+        JOhm.save(country);
+        User user = new User();
+        user.setName("foo");
+        user.setAge(33);
+        user.setCountry(country);
+        user.setThreeLatestPurchases(new Item[] { saveItem("bar"), null, null });
+        JOhm.save(user);
+
+        User savedUser = JOhm.get(User.class, user.getId());
+        assertEquals(0, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertEquals(3, cache.size());
+
+        // bypass JOhm, the cache does not see it
+        hset("User:" + user.getId(), "name", "changed");
+        User cachedUser = JOhm.get(User.class, user.getId());
+        assertNotSame(savedUser, cachedUser);
+        assertEquals("foo", cachedUser.getName());
+        assertEquals(33, cachedUser.getAge());
+        assertEquals("Argentina", cachedUser.getCountry().getName());
+        assertEquals("bar", cachedUser.getThreeLatestPurchases()[0].getName());
+        assertEquals(3, cache.getHits());
+
+        List<User> users = JOhm.find(User.class, "age", 33);
+        assertEquals("foo", users.get(0).getName());
+        assertEquals(6, cache.getHits());
+    }
+
+    @Test
+    public void saveAndDeleteInvalidate() {
+        ModelCache cache = new ModelCache(100);
+        JOhm.setModelCache(cache);
+        User user = new User();
+        user.setName("foo");
+        JOhm.save(user);
+        JOhm.get(User.class, user.getId());
+        assertEquals(1, cache.size());
+
+        user.setName("bar");
+        JOhm.save(user);
+        assertEquals(0, cache.size());
+        User savedUser = JOhm.get(User.class, user.getId());
+        assertEquals("bar", savedUser.getName());
+
+        JOhm.delete(User.class, user.getId());
+        assertEquals(0, cache.size());
+        assertNull(JOhm.get(User.class, user.getId()));
+    }
+
+    @Test
+    public void dropsReadsRacingWrites() {
+        ModelCache cache = new ModelCache(100);
+        Map<String, String> hash = new HashMap<String, String>();
+        hash.put("name", "foo");
+        List<List<String>> arrays = Collections.emptyList();
+        long generation = cache.generation("User:1");
+        // saved while User:1 was being read
+        cache.written("User:1");
+        cache.put("User:1", generation, User.class, hash, arrays);
+        assertNull(cache.get("User:1"));
+
+        cache.put("User:1", cache.generation("User:1"), User.class, hash,
+                arrays);
+        assertEquals("foo", cache.get("User:1").getHash().get("name"));
+    }
+
+    @Test
+    public void readsRacingSavesAreNotCached() throws InterruptedException {
+        JOhm.setModelCache(new ModelCache(100));
+        final User user = new User();
+        user.setName("foo");
+        JOhm.save(user);
+        Thread reader = new Thread(new Runnable() {
+            public void run() {
+                JOhm.get(User.class, user.getId());
+            }
+        });
+        Interleaving interleaving = new Interleaving(reader);
+        JOhm.setBackend(interleaving);
+        reader.start();
+        interleaving.awaitRead();
+        user.setName("bar");
+        JOhm.save(user);
+        interleaving.written();
+        reader.join();
+        assertEquals("bar", JOhm.<User> get(User.class, user.getId())
+                .getName());
+    }
+
+    @Test
+    public void expiresEntries() throws InterruptedException {
+        ModelCache cache = new ModelCache(100);
+        cache.setTtl(User.class, 50);
+        JOhm.setModelCache(cache);
+        User user = new User();
+        user.setName("foo");
+        JOhm.save(user);
+        Country country = new Country();
+        country.setName("Argentina");
+        JOhm.save(country);
+        JOhm.get(User.class, user.getId());
+        JOhm.get(Country.class, country.getId());
+
+        hset("User:" + user.getId(), "name", "changed");
+        hset("Country:" + country.getId(), "name", "changed");
+        Thread.sleep(100);
+        User savedUser = JOhm.get(User.class, user.getId());
+        assertEquals("changed", savedUser.getName());
+        Country savedCountry = JOhm.get(Country.class, country.getId());
+        assertEquals("Argentina", savedCountry.getName());
+        assertEquals(1, cache.getExpirations());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        ModelCache cache = new ModelCache(2);
+        JOhm.setModelCache(cache);
+        Item item1 = saveItem("one");
+        Item item2 = saveItem("two");
+        Item item3 = saveItem("three");
+        JOhm.get(Item.class, item1.getId());
+        JOhm.get(Item.class, item2.getId());
+        JOhm.get(Item.class, item1.getId());
+        JOhm.get(Item.class, item3.getId());
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+
+        long misses = cache.getMisses();
+        JOhm.get(Item.class, item1.getId());
+        assertEquals(misses, cache.getMisses());
+        JOhm.get(Item.class, item2.getId());
+        assertEquals(misses + 1, cache.getMisses());
+    }
+
+    @Test
+    public void remembersMissingIds() {
+        ModelCache cache = new ModelCache(100);
+        cache.setNegativeCaching(true);
+        JOhm.setModelCache(cache);
+        assertNull(JOhm.get(Item.class, 1));
+        assertEquals(1, cache.size());
+        assertNull(JOhm.get(Item.class, 1));
+        assertEquals(1, cache.getNegativeHits());
+
+        // bypass JOhm, the cache does not see it
+        hset("Item:1", "name", "foo");
+        assertNull(JOhm.get(Item.class, 1));
+        Item item = saveItem("bar");
+        assertEquals(1, item.getId().longValue());
+        assertEquals("bar", JOhm.<Item> get(Item.class, 1).getName());
+
+        JOhm.delete(Item.class, 1);
+        assertNull(JOhm.get(Item.class, 1));
+        assertNull(JOhm.get(Item.class, 1));
+        assertEquals(3, cache.getNegativeHits());
+
+        cache.setNegativeCaching(false);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void readsRacingCreationAreNotRemembered()
+            throws InterruptedException {
+        ModelCache cache = new ModelCache(100);
+        cache.setNegativeCaching(true);
+        JOhm.setModelCache(cache);
+        Thread reader = new Thread(new Runnable() {
+            public void run() {
+                JOhm.get(Item.class, 1);
+            }
+        });
+        Interleaving interleaving = new Interleaving(reader);
+        JOhm.setBackend(interleaving);
+        reader.start();
+        interleaving.awaitRead();
+        saveItem("foo");
+        interleaving.written();
+        reader.join();
+        assertEquals("foo", JOhm.<Item> get(Item.class, 1).getName());
+    }
+
+    @Test
+    public void bloomFilterRejectsUnknownIds() {
+        Item stored = saveItem("foo");
+        ModelCache cache = new ModelCache(100);
+        cache.setBloomFilter(Item.class, 1000, 0.01);
+        JOhm.setModelCache(cache);
+        // an unseeded filter leaves every lookup to Redis
+        assertNull(JOhm.get(Item.class, 1000));
+        assertEquals(0, cache.getBloomRejections(Item.class));
+
+        JOhm.seedBloomFilter(Item.class);
+        assertEquals("foo", JOhm.<Item> get(Item.class, stored.getId())
+                .getName());
+        long misses = cache.getMisses();
+        for (long id = 1000; id < 2000; id++) {
+            assertNull(JOhm.get(Item.class, id));
+        }
+        long rejections = cache.getBloomRejections(Item.class);
+        long falsePositives = cache.getBloomFalsePositives(Item.class);
+        assertEquals(1000, rejections + falsePositives);
+        assertEquals(misses + falsePositives, cache.getMisses());
+        assertTrue(cache.getBloomFalsePositiveRate(Item.class) < 0.05);
+
+        Item saved = saveItem("bar");
+        assertEquals("bar", JOhm.<Item> get(Item.class, saved.getId())
+                .getName());
+        assertEquals(0, cache.getBloomRejections(User.class));
+    }
+
+    @Test
+    public void bloomFilterLearnsRelayedKeys() {
+        ModelCache cache = new ModelCache(100);
+        cache.setBloomFilter(Item.class, 1000, 0.01);
+        JOhm.setModelCache(cache);
+        JOhm.seedBloomFilter(Item.class);
+        assertNull(JOhm.get(Item.class, 1));
+        assertEquals(1, cache.getBloomRejections(Item.class));
+
+        // saved by another process
+        hset("Item:1", "name", "foo");
+        cache.relayed("Item:1");
+        assertEquals("foo", JOhm.<Item> get(Item.class, 1).getName());
+    }
+
+    @Test
+    public void writesWhoseReplyIsLostInvalidate() {
+        LosingReplies backend = new LosingReplies();
+        JOhm.setBackend(backend);
+        ModelCache cache = new ModelCache(100);
+        JOhm.setModelCache(cache);
+        User user = new User();
+        user.setName("foo");
+        JOhm.save(user);
+        JOhm.get(User.class, user.getId());
+        assertEquals(1, cache.size());
+
+        user.setName("bar");
+        backend.lose = true;
+        try {
+            JOhm.save(user);
+            fail();
+        } catch (JOhmException e) {
+        }
+        backend.lose = false;
+        assertEquals("bar", JOhm.<User> get(User.class, user.getId())
+                .getName());
+
+        backend.lose = true;
+        try {
+            JOhm.delete(User.class, user.getId());
+            fail();
+        } catch (JOhmException e) {
+        }
+        backend.lose = false;
+        assertNull(JOhm.get(User.class, user.getId()));
+    }
+
+    /**
+     * Holds the reads of a thread after they got their replies, until the
+     * test has written.
+     */
+    private class Interleaving extends JedisBackend {
+        private final Thread reader;
+        private final CountDownLatch read = new CountDownLatch(1);
+        private final CountDownLatch written = new CountDownLatch(1);
+
+        Interleaving(Thread reader) {
+            super(jedisPool);
+            this.reader = reader;
+        }
+
+        @Override
+        public List<Object> pipelined(CommandBlock block) {
+            List<Object> replies = super.pipelined(block);
+            if (Thread.currentThread() == reader) {
+                read.countDown();
+                try {
+                    written.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return replies;
+        }
+
+        void awaitRead() throws InterruptedException {
+            read.await();
+        }
+
+        void written() {
+            written.countDown();
+        }
+    }
+
+    /**
+     * Applies transactions but, when told to, fails as if their replies were
+     * lost.
+     */
+    private static class LosingReplies extends InMemoryBackend {
+        private volatile boolean lose;
+
+        @Override
+        public List<Object> pipelinedMulti(CommandBlock block) {
+            List<Object> replies = super.pipelinedMulti(block);
+            if (lose) {
+                throw new JOhmException("Reply lost");
+            }
+            return replies;
+        }
+    }
+
+    private Item saveItem(String name) {
+        Item item = new Item();
+        item.setName(name);
+        JOhm.save(item);
+        return item;
+    }
+
+    private void hset(String key, String field, String value) {
+        Jedis jedis = jedisPool.getResource();
+        jedis.hset(key, field, value);
+        jedisPool.returnResource(jedis);
+    }
+}
@@ -0,0 +1,46 @@
+package redis.clients.johm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import redis.clients.johm.models.Country;
+import redis.clients.johm.models.Country_JOhmMapper;
+import redis.clients.johm.models.User;
+
+public class ModelMapperTest extends JOhmTestBase {
+    @Test
+    public void usesMapperFoundByNamingConvention() {
+        Object mapper = ModelMetadata.forClass(Country.class).getMapper();
+        assertTrue(mapper instanceof Country_JOhmMapper);
+
+        Country country = new Country();
+        country.setName("Argentina");
+        JOhm.save(country);
+
+        Country savedCountry = JOhm.get(Country.class, country.getId());
+        assertEquals(country, savedCountry);
+    }
+
+    @Test
+    public void fallsBackToReflection() {
+        ModelMapper<Object> mapper = ModelMetadata.forClass(User.class)
+                .getMapper();
+        assertTrue(mapper instanceof ReflectionModelMapper);
+
+        User user = (User) mapper.newInstance();
+        user.setName("foo");
+        user.setAge(3);
+        Map<String, String> hash = new HashMap<String, String>();
+        mapper.toHash(user, hash);
+        assertEquals("foo", hash.get("name"));
+        assertEquals("3", hash.get("age"));
+        assertFalse(hash.containsKey("room"));
+
+        User mappedUser = (User) mapper.newInstance();
+        mapper.fromHash(hash, mappedUser);
+        assertEquals("foo", mappedUser.getName());
+        assertEquals(3, mappedUser.getAge());
+    }
+}
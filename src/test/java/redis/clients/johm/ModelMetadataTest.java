@@ -0,0 +1,61 @@
+package redis.clients.johm;
+
+import java.lang.reflect.Field;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import redis.clients.johm.models.Book;
+import redis.clients.johm.models.FaultyModel;
+import redis.clients.johm.models.User;
+
+public class ModelMetadataTest extends Assert {
+    @Test
+    public void metadataIsBuiltOnce() {
+        assertSame(ModelMetadata.forClass(User.class), ModelMetadata
+                .forModel(new User()));
+    }
+
+    @Test
+    public void describesModelFields() {
+        ModelMetadata metadata = ModelMetadata.forClass(User.class);
+        assertEquals("User", metadata.getModelName());
+        assertEquals("id", metadata.getIdField().getName());
+        assertEquals(4, metadata.getAttributes().size());
+        assertEquals(1, metadata.getReferences().size());
+        assertEquals(4, metadata.getCollections().size());
+        assertEquals(1, metadata.getArrays().size());
+
+        // only attributes and references are indexed through the hash
+        List<Field> indexed = metadata.getIndexed();
+        assertEquals(3, indexed.size());
+        Field country = metadata.getField("country");
+        assertTrue(indexed.contains(country));
+        assertTrue(metadata.isReference(country));
+        assertEquals("country_id", metadata.getKeyName(country));
+        assertEquals("age", metadata.getKeyName(metadata.getField("age")));
+        assertTrue(metadata.isIndexed(metadata.getField("likes")));
+        assertNull(metadata.getField("nonExistent"));
+    }
+
+    @Test
+    public void gathersInheritedFieldsOnce() {
+        ModelMetadata metadata = ModelMetadata.forClass(Book.class);
+        List<Field> allFields = metadata.getAllFields();
+        assertEquals(allFields.size(), new HashSet<Field>(allFields).size());
+        assertEquals(5, metadata.getAttributes().size());
+        assertEquals(Book.class, metadata.getIdField().getDeclaringClass());
+    }
+
+    @Test(expected = JOhmException.class)
+    public void rejectsInvalidModels() {
+        ModelMetadata.forClass(FaultyModel.class);
+    }
+
+    @Test(expected = JOhmException.class)
+    public void rejectsClassesWithoutModelAnnotation() {
+        ModelMetadata.forClass(Nest.class);
+    }
+}
@@ -5,6 +5,7 @@ import java.util.concurrent.TimeoutException;
 import org.junit.Test;
 
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.TransactionBlock;
 
 public class NestTest extends JOhmTestBase {
 
@@ -23,4 +24,17 @@ public class NestTest extends JOhmTestBase {
         jedisPool.returnBrokenResource(jedis);
         assertEquals("foo", users.cat(123).cat("name").get());
     }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void runsTransactionBlocks() {
+        Nest<Object> nest = new Nest<Object>("foo");
+        nest.setJedisPool(jedisPool);
+        nest.multi(new TransactionBlock() {
+            public void execute() {
+                set("foo", "bar");
+            }
+        });
+        assertEquals("bar", nest.get());
+    }
 }
\ No newline at end of file
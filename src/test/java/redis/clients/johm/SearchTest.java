@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.junit.Test;
 
+import redis.clients.jedis.Jedis;
 import redis.clients.johm.models.Country;
 import redis.clients.johm.models.Item;
 import redis.clients.johm.models.User;
@@ -163,6 +164,57 @@ public class SearchTest extends JOhmTestBase {
         assertEquals(user3.getId(), users.get(1).getId());
     }
 
+    @Test
+    public void updatingArraysMovesIndexes() {
+        Item item0 = new Item();
+        item0.setName("Foo0");
+        JOhm.save(item0);
+
+        Item item1 = new Item();
+        item1.setName("Foo1");
+        JOhm.save(item1);
+
+        User user = new User();
+        user.setName("foo");
+        user.setThreeLatestPurchases(new Item[] { item0, item0 });
+        JOhm.save(user);
+
+        user.setThreeLatestPurchases(new Item[] { item1 });
+        JOhm.save(user);
+
+        List<User> users = JOhm.find(User.class, "threeLatestPurchases", item0
+                .getId());
+        assertEquals(0, users.size());
+        users = JOhm.find(User.class, "threeLatestPurchases", item1.getId());
+        assertEquals(1, users.size());
+        assertEquals(user.getId(), users.get(0).getId());
+
+        User savedUser = JOhm.get(User.class, user.getId());
+        assertEquals(item1.getId(), savedUser.getThreeLatestPurchases()[0]
+                .getId());
+        assertNull(savedUser.getThreeLatestPurchases()[1]);
+    }
+
+    @Test
+    public void deleteRemovesArrayIndexes() {
+        Item item = new Item();
+        item.setName("bar");
+        JOhm.save(item);
+        User user = new User();
+        user.setName("foo");
+        user.setThreeLatestPurchases(new Item[] { item, item });
+        JOhm.save(user);
+        assertEquals(1, JOhm.find(User.class, "threeLatestPurchases",
+                item.getId()).size());
+
+        JOhm.delete(User.class, user.getId());
+        assertEquals(0, JOhm.find(User.class, "threeLatestPurchases",
+                item.getId()).size());
+        Jedis jedis = jedisPool.getResource();
+        assertFalse(jedis.exists("User:threeLatestPurchases:" + item.getId()));
+        jedisPool.returnResource(jedis);
+    }
+
     @Test
     public void canSearchOnSets() {
         Item item = new Item();
@@ -289,4 +341,82 @@ public class SearchTest extends JOhmTestBase {
 
         assertNull(JOhm.get(User.class, id));
     }
+
+    @Test
+    public void findHydratesInBatches() {
+        JOhm.setBatchSize(2);
+        try {
+            Country country = new Country();
+            country.setName("Argentina");
+            JOhm.save(country);
+            for (int n = 0; n < 5; n++) {
+                User user = new User();
+                user.setName("foo" + n);
+                user.setAge(55);
+                user.setCountry(country);
+                JOhm.save(user);
+            }
+
+            List<User> users = JOhm.find(User.class, "age", 55);
+            assertEquals(5, users.size());
+            for (User user : users) {
+                assertTrue(user.getName().startsWith("foo"));
+                assertEquals(country, user.getCountry());
+            }
+            assertEquals(5, JOhm.getAll(User.class).size());
+        } finally {
+            JOhm.setBatchSize(1000);
+        }
+    }
+
+    @Test
+    public void findLoadsResultsLazily() {
+        JOhm.setPageSize(5);
+        try {
+            for (int n = 0; n < 50; n++) {
+                User user = new User();
+                user.setName("foo" + n);
+                user.setAge(60);
+                JOhm.save(user);
+            }
+
+            List<User> users = JOhm.find(User.class, "age", 60);
+            assertEquals(60, users.get(0).getAge());
+
+            // only the first page has been loaded, the rest is skipped
+            Jedis jedis = jedisPool.getResource();
+            for (String key : jedis.keys("User:*")) {
+                if (key.matches("User:[0-9]+")) {
+                    jedis.del(key);
+                }
+            }
+            jedisPool.returnResource(jedis);
+
+            // counted without loading, the deleted Models are still in
+            assertEquals(50, users.size());
+            int found = 0;
+            for (User user : users) {
+                assertEquals(60, user.getAge());
+                found++;
+            }
+            assertEquals(5, found);
+            assertEquals(5, users.size());
+        } finally {
+            JOhm.setPageSize(20);
+        }
+    }
+
+    @Test
+    public void findSkipsDeletedModels() {
+        User user = new User();
+        user.setName("foo");
+        user.setAge(61);
+        JOhm.save(user);
+        JOhm.delete(User.class, user.getId(), false, false);
+
+        List<User> users = JOhm.find(User.class, "age", 61);
+        assertTrue(users.isEmpty());
+        assertEquals(0, users.size());
+        assertFalse(users.iterator().hasNext());
+    }
 }
\ No newline at end of file
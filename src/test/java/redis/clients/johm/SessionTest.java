@@ -0,0 +1,130 @@
+package redis.clients.johm;
+
+import org.apache.commons.pool.impl.GenericObjectPool;
+import org.apache.commons.pool.impl.GenericObjectPool.Config;
+import org.junit.Test;
+
+import redis.clients.jedis.JedisException;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Protocol;
+import redis.clients.johm.models.Country;
+import redis.clients.johm.models.Item;
+import redis.clients.johm.models.User;
+
+public class SessionTest extends JOhmTestBase {
+    @Test
+    public void operationsBorrowOnce() {
+        Country country = new Country();
+        country.setName("Argentina");
+        JOhm.save(country);
+        Item item = new Item();
+        item.setName("bar");
+        JOhm.save(item);
+        User user = new User();
+        user.setName("foo");
+        user.setCountry(country);
+        user.setThreeLatestPurchases(new Item[] { item, item, item });
+
+        long borrows = Session.getBorrows();
+        JOhm.save(user);
+        assertEquals(1, Session.getBorrows() - borrows);
+
+        borrows = Session.getBorrows();
+        User savedUser = JOhm.get(User.class, user.getId());
+        assertEquals(1, Session.getBorrows() - borrows);
+        assertEquals("Argentina", savedUser.getCountry().getName());
+
+        borrows = Session.getBorrows();
+        JOhm.delete(User.class, user.getId(), true, true);
+        assertEquals(1, Session.getBorrows() - borrows);
+        assertNull(JOhm.get(Country.class, country.getId()));
+    }
+
+    @Test
+    public void pinsConnectionUntilClosed() {
+        long borrows = Session.getBorrows();
+        Session session = JOhm.openSession();
+        try {
+            assertFalse(session.isConnected());
+            User user = new User();
+            user.setName("foo");
+            JOhm.save(user);
+            assertTrue(session.isConnected());
+            User savedUser = JOhm.get(User.class, user.getId());
+            Item item = new Item();
+            item.setName("bar");
+            JOhm.save(item);
+            savedUser.getLikes().add(item);
+            assertEquals(1, savedUser.getLikes().size());
+            assertEquals(1, JOhm.find(User.class, "name", "foo").size());
+            assertEquals(1, Session.getBorrows() - borrows);
+        } finally {
+            session.close();
+        }
+        assertFalse(session.isConnected());
+        assertNull(Session.current());
+
+        borrows = Session.getBorrows();
+        JOhm.get(Item.class, 1);
+        JOhm.get(Item.class, 1);
+        assertEquals(2, Session.getBorrows() - borrows);
+    }
+
+    @Test(expected = JOhmException.class)
+    public void oneSessionPerThread() {
+        Session session = JOhm.openSession();
+        try {
+            JOhm.openSession();
+        } finally {
+            session.close();
+        }
+    }
+
+    @Test
+    public void failedCommandsReleaseConnections() {
+        Config config = new Config();
+        config.maxActive = 1;
+        config.whenExhaustedAction = GenericObjectPool.WHEN_EXHAUSTED_FAIL;
+        JedisPool pool = new JedisPool(config, "localhost",
+                Protocol.DEFAULT_PORT, 2000);
+        Nest<Object> nest = new Nest<Object>("foo");
+        nest.setJedisPool(pool);
+        nest.set("bar");
+        for (int i = 0; i < 3; i++) {
+            try {
+                nest.hgetAll();
+                fail();
+            } catch (JedisException e) {
+                // wrong type
+            }
+        }
+        assertEquals("bar", nest.get());
+
+        JOhm.setPool(pool);
+        Session session = JOhm.openSession();
+        try {
+            assertEquals("bar", nest.get());
+            try {
+                nest.hgetAll();
+                fail();
+            } catch (JedisException e) {
+                // wrong type
+            }
+            assertFalse(session.isConnected());
+            assertEquals("bar", nest.get());
+            assertTrue(session.isConnected());
+        } finally {
+            session.close();
+        }
+        assertEquals("bar", nest.get());
+        pool.destroy();
+    }
+
+    @Test
+    public void recordsPoolWait() {
+        long waited = Session.getPoolWaitNanos();
+        JOhm.get(User.class, 1);
+        assertTrue(Session.getPoolWaitNanos() > waited);
+        assertTrue(Session.getMaxPoolWaitNanos() > 0);
+    }
+}
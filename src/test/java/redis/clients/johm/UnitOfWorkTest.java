@@ -0,0 +1,131 @@
+package redis.clients.johm;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import redis.clients.johm.models.Country;
+import redis.clients.johm.models.Item;
+import redis.clients.johm.models.Person;
+import redis.clients.johm.models.User;
+
+public class UnitOfWorkTest extends JOhmTestBase {
+    private UnitOfWork unitOfWork;
+
+    @Before
+    public void openUnitOfWork() {
+        unitOfWork = JOhm.openUnitOfWork();
+    }
+
+    @After
+    public void closeUnitOfWork() {
+        unitOfWork.close();
+    }
+
+    @Test
+    public void sharesReferencedModels() {
+        Country country = new Country();
+        country.setName("Argentina");
+        JOhm.save(country);
+        User user1 = new User();
+        user1.setName("foo");
+        user1.setCountry(country);
+        JOhm.save(user1);
+        User user2 = new User();
+        user2.setName("bar");
+        user2.setCountry(country);
+        JOhm.save(user2);
+        unitOfWork.clear();
+
+        User savedUser1 = JOhm.get(User.class, user1.getId());
+        User savedUser2 = JOhm.get(User.class, user2.getId());
+        assertSame(savedUser1.getCountry(), savedUser2.getCountry());
+        assertSame(savedUser1, JOhm.get(User.class, user1.getId()));
+        assertSame(savedUser1.getCountry(), JOhm.get(Country.class, country
+                .getId()));
+        assertEquals(3, unitOfWork.size());
+
+        List<User> users = JOhm.find(User.class, "country", country.getId());
+        assertEquals(2, users.size());
+        for (User user : users) {
+            assertTrue(user == savedUser1 || user == savedUser2);
+        }
+        assertSame(savedUser1, JOhm.getAll(User.class, user1.getId()).get(0));
+    }
+
+    @Test
+    public void sharesCollectionElements() {
+        Item item = new Item();
+        item.setName("foo");
+        JOhm.save(item);
+        User user = new User();
+        user.setName("foo");
+        JOhm.save(user);
+        user.getLikes().add(item);
+        user.getPurchases().add(item);
+
+        assertSame(item, user.getLikes().get(0));
+        assertSame(item, user.getPurchases().iterator().next());
+    }
+
+    @Test
+    public void resolvesReferenceCycles() {
+        Person alice = new Person();
+        alice.setName("alice");
+        JOhm.save(alice);
+        Person bob = new Person();
+        bob.setName("bob");
+        bob.setPartner(alice);
+        JOhm.save(bob);
+        alice.setPartner(bob);
+        JOhm.save(alice);
+        unitOfWork.clear();
+
+        Person savedAlice = JOhm.get(Person.class, alice.getId());
+        assertEquals("bob", savedAlice.getPartner().getName());
+        assertSame(savedAlice, savedAlice.getPartner().getPartner());
+
+        unitOfWork.clear();
+        Person loadedBob = JOhm.<Person> getAll(Person.class, bob.getId())
+                .get(0);
+        assertSame(loadedBob, loadedBob.getPartner().getPartner());
+    }
+
+    @Test
+    public void forgetsDeletedModels() {
+        User user = new User();
+        user.setName("foo");
+        JOhm.save(user);
+        assertSame(user, JOhm.get(User.class, user.getId()));
+        JOhm.delete(User.class, user.getId());
+        assertNull(JOhm.get(User.class, user.getId()));
+    }
+
+    @Test
+    public void deleteRemovesStoredIndexes() {
+        User user = new User();
+        user.setName("foo");
+        JOhm.save(user);
+        user.setName("bar");
+        JOhm.delete(User.class, user.getId());
+        assertEquals(0, JOhm.find(User.class, "name", "foo").size());
+    }
+
+    @Test
+    public void closingLoadsFreshInstances() {
+        User user = new User();
+        user.setName("foo");
+        JOhm.save(user);
+        unitOfWork.close();
+        User savedUser = JOhm.get(User.class, user.getId());
+        assertNotSame(user, savedUser);
+        assertNotSame(savedUser, JOhm.get(User.class, user.getId()));
+    }
+
+    @Test(expected = JOhmException.class)
+    public void cannotOpenTwice() {
+        JOhm.openUnitOfWork();
+    }
+}
@@ -0,0 +1,172 @@
+package redis.clients.johm.benchmark;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import redis.clients.johm.JOhm;
+import redis.clients.johm.models.Country;
+import redis.clients.johm.models.User;
+
+/**
+ * Compares loading a page of models one by one with loading it in a batch.
+ */
+public class BatchGetBenchmark extends JOhmBenchmarkTestBase {
+    private CountingJedisPool countingPool;
+
+    @Override
+    protected void startJedisEngine() {
+        countingPool = new CountingJedisPool();
+        jedisPool = countingPool;
+        JOhm.setPool(jedisPool);
+        purgeRedis();
+    }
+
+    @Test
+    public void getPage() {
+        int pageSize = 200;
+        List<Long> ids = new ArrayList<Long>(pageSize);
+        for (int n = 0; n < pageSize; n++) {
+            Country country = new Country();
+            country.setName("country" + (n % 20));
+            JOhm.save(country);
+            User user = new User();
+            user.setName("foo" + n);
+            user.setAge(n);
+            user.setCountry(country);
+            JOhm.save(user);
+            ids.add(user.getId());
+        }
+
+        long roundTrips = countingPool.getRoundTrips();
+        long commands = countingPool.commandsProcessed();
+        for (Long id : ids) {
+            JOhm.get(User.class, id);
+        }
+        printRoundTrips("getPageOneByOne", countingPool.getRoundTrips()
+                - roundTrips, countingPool.commandsProcessed() - commands);
+
+        roundTrips = countingPool.getRoundTrips();
+        commands = countingPool.commandsProcessed();
+        JOhm.getAll(User.class, ids);
+        printRoundTrips("getPageBatched", countingPool.getRoundTrips()
+                - roundTrips, countingPool.commandsProcessed() - commands);
+
+        int totalOps = 100;
+        timer.begin();
+        for (int n = 0; n < totalOps; n++) {
+            for (Long id : ids) {
+                JOhm.get(User.class, id);
+            }
+        }
+        timer.end();
+        printStats("getPageOneByOne", totalOps, 1, timer.elapsed());
+
+        timer.begin();
+        for (int n = 0; n < totalOps; n++) {
+            JOhm.getAll(User.class, ids);
+        }
+        timer.end();
+        printStats("getPageBatched", totalOps, 1, timer.elapsed());
+    }
+
+    @Test
+    public void findMatches() {
+        int matches = 1000;
+        for (int n = 0; n < matches; n++) {
+            Country country = new Country();
+            country.setName("country" + (n % 20));
+            JOhm.save(country);
+            User user = new User();
+            user.setName("foo" + n);
+            user.setAge(42);
+            user.setCountry(country);
+            JOhm.save(user);
+        }
+
+        long roundTrips = countingPool.getRoundTrips();
+        long commands = countingPool.commandsProcessed();
+        for (User user : JOhm.<User> find(User.class, "age", 42)) {
+            user.getCountry();
+        }
+        printRoundTrips("findMatches", countingPool.getRoundTrips()
+                - roundTrips, countingPool.commandsProcessed() - commands);
+
+        int totalOps = 20;
+        timer.begin();
+        for (int n = 0; n < totalOps; n++) {
+            for (User user : JOhm.<User> find(User.class, "age", 42)) {
+                user.getCountry();
+            }
+        }
+        timer.end();
+        printStats("findMatches", totalOps, 1, timer.elapsed());
+    }
+
+    @Test
+    public void findFirstPage() {
+        int matches = 50000;
+        List<User> users = new ArrayList<User>(matches);
+        for (int n = 0; n < matches; n++) {
+            User user = new User();
+            user.setName("foo" + n);
+            user.setAge(42);
+            users.add(user);
+        }
+        JOhm.saveAll(users);
+
+        long roundTrips = countingPool.getRoundTrips();
+        long commands = countingPool.commandsProcessed();
+        List<User> found = JOhm.find(User.class, "age", 42);
+        for (int n = 0; n < 20; n++) {
+            found.get(n);
+        }
+        printRoundTrips("findFirstPage", countingPool.getRoundTrips()
+                - roundTrips, countingPool.commandsProcessed() - commands);
+
+        int totalOps = 20;
+        timer.begin();
+        for (int n = 0; n < totalOps; n++) {
+            found = JOhm.find(User.class, "age", 42);
+            for (int i = 0; i < 20; i++) {
+                found.get(i);
+            }
+        }
+        timer.end();
+        printStats("findFirstPage", totalOps, 1, timer.elapsed());
+    }
+
+    @Test
+    public void iterateAll() {
+        int totalOps = 50000;
+        List<User> users = new ArrayList<User>(totalOps);
+        for (int n = 0; n < totalOps; n++) {
+            User user = new User();
+            user.setName("foo" + n);
+            users.add(user);
+        }
+        JOhm.saveAll(users);
+        users = null;
+
+        long roundTrips = countingPool.getRoundTrips();
+        long commands = countingPool.commandsProcessed();
+        timer.begin();
+        int iterated = 0;
+        Iterator<User> iterator = JOhm.iterateAll(User.class);
+        while (iterator.hasNext()) {
+            iterator.next();
+            iterated++;
+        }
+        timer.end();
+        printRoundTrips("iterateAll", countingPool.getRoundTrips()
+                - roundTrips, countingPool.commandsProcessed() - commands);
+        printStats("iterateAll", iterated, 1, timer.elapsed());
+
+        timer.begin();
+        iterated = JOhm.getAll(User.class).size();
+        timer.end();
+        printStats("getAll", iterated, 1, timer.elapsed());
+    }
+}
@@ -0,0 +1,70 @@
+package redis.clients.johm.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import redis.clients.johm.JOhm;
+import redis.clients.johm.ModelCache;
+import redis.clients.johm.models.Country;
+import redis.clients.johm.models.User;
+
+/**
+ * Compares reading a small hot set of models with and without a ModelCache.
+ */
+public class CachedGetBenchmark extends JOhmBenchmarkTestBase {
+    private CountingJedisPool countingPool;
+
+    @Override
+    protected void startJedisEngine() {
+        countingPool = new CountingJedisPool();
+        jedisPool = countingPool;
+        JOhm.setPool(jedisPool);
+        purgeRedis();
+    }
+
+    @After
+    public void removeCache() {
+        JOhm.setModelCache(null);
+    }
+
+    @Test
+    public void getHotSet() {
+        int hotSet = 100;
+        List<Long> ids = new ArrayList<Long>(hotSet);
+        for (int n = 0; n < hotSet; n++) {
+            Country country = new Country();
+            country.setName("country" + (n % 20));
+            JOhm.save(country);
+            User user = new User();
+            user.setName("foo" + n);
+            user.setAge(n);
+            user.setCountry(country);
+            JOhm.save(user);
+            ids.add(user.getId());
+        }
+
+        int totalOps = 10000;
+        measure("getUncached", ids, totalOps);
+        ModelCache cache = new ModelCache(1000);
+        JOhm.setModelCache(cache);
+        measure("getCached", ids, totalOps);
+        System.out.println("[getCached] hits=" + cache.getHits() + ", misses="
+                + cache.getMisses());
+    }
+
+    private void measure(String test, List<Long> ids, int totalOps) {
+        long roundTrips = countingPool.getRoundTrips();
+        long commands = countingPool.commandsProcessed();
+        timer.begin();
+        for (int n = 0; n < totalOps; n++) {
+            JOhm.get(User.class, ids.get(n % ids.size()));
+        }
+        timer.end();
+        printRoundTrips(test, countingPool.getRoundTrips() - roundTrips,
+                countingPool.commandsProcessed() - commands);
+        printStats(test, totalOps, 1, timer.elapsed());
+    }
+}
@@ -0,0 +1,138 @@
+package redis.clients.johm.benchmark;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.commons.pool.impl.GenericObjectPool.Config;
+
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Protocol;
+
+/**
+ * A JedisPool that counts borrowed connections and round trips. A connection
+ * may serve several round trips now that JOhm pins one per operation, so
+ * round trips are counted on the connections' sockets, as the times they
+ * start reading replies after sending commands.
+ */
+class CountingJedisPool extends JedisPool {
+    private final Map<Jedis, Boolean> counted = new IdentityHashMap<Jedis, Boolean>();
+    private long borrows;
+    private long roundTrips;
+    private boolean counting = true;
+
+    CountingJedisPool() {
+        super(new Config(), "localhost", Protocol.DEFAULT_PORT, 2000);
+    }
+
+    @Override
+    public Jedis getResource() {
+        borrows++;
+        Jedis jedis = super.getResource();
+        if (counted.put(jedis, Boolean.TRUE) == null) {
+            countRoundTrips(jedis);
+        }
+        return jedis;
+    }
+
+    long getBorrows() {
+        return borrows;
+    }
+
+    long getRoundTrips() {
+        return roundTrips;
+    }
+
+    /**
+     * The server's total_commands_processed, not counting this call.
+     */
+    long commandsProcessed() {
+        counting = false;
+        try {
+            Jedis jedis = super.getResource();
+            String info = jedis.info();
+            returnResource(jedis);
+            String stat = "total_commands_processed:";
+            int start = info.indexOf(stat) + stat.length();
+            int end = info.indexOf("\r\n", start);
+            // discount the INFO command itself
+            return Long.parseLong(info.substring(start, end)) - 1;
+        } finally {
+            counting = true;
+        }
+    }
+
+    private void countRoundTrips(final Jedis jedis) {
+        try {
+            Field outputStream = Connection.class
+                    .getDeclaredField("outputStream");
+            Field inputStream = Connection.class
+                    .getDeclaredField("inputStream");
+            Field out = FilterOutputStream.class.getDeclaredField("out");
+            Field in = FilterInputStream.class.getDeclaredField("in");
+            outputStream.setAccessible(true);
+            inputStream.setAccessible(true);
+            out.setAccessible(true);
+            in.setAccessible(true);
+            Wire wire = new Wire();
+            Object output = outputStream.get(jedis.getClient());
+            out.set(output, wire.new Output((OutputStream) out.get(output)));
+            Object input = inputStream.get(jedis.getClient());
+            in.set(input, wire.new Input((InputStream) in.get(input)));
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot count round trips", e);
+        }
+    }
+
+    /**
+     * Counts a round trip whenever a connection starts reading after having
+     * written.
+     */
+    private final class Wire {
+        private boolean written;
+
+        private void reading() {
+            if (written && counting) {
+                roundTrips++;
+            }
+            written = false;
+        }
+
+        private final class Output extends FilterOutputStream {
+            Output(final OutputStream out) {
+                super(out);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                written = true;
+                out.write(b, off, len);
+            }
+        }
+
+        private final class Input extends FilterInputStream {
+            Input(final InputStream in) {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException {
+                reading();
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                reading();
+                return in.read(b, off, len);
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package redis.clients.johm.benchmark;
+
+import java.lang.reflect.Field;
+
+import org.junit.Test;
+
+import redis.clients.johm.Id;
+import redis.clients.johm.JOhm;
+import redis.clients.johm.models.User;
+
+public class GetIdBenchmark extends JOhmBenchmarkTestBase {
+    @Test
+    public void getIdPerCallCost() throws Exception {
+        int totalOps = 1000000;
+        User user = new User();
+        user.setName("foo");
+        JOhm.save(user);
+
+        // warm up both paths before measuring
+        long checksum = 0;
+        for (int n = 0; n < totalOps; n++) {
+            checksum += scanForId(user) + JOhm.getId(user);
+        }
+
+        timer.begin();
+        for (int n = 0; n < totalOps; n++) {
+            checksum += scanForId(user);
+        }
+        timer.end();
+        long scanElapsed = timer.elapsed();
+
+        timer.begin();
+        for (int n = 0; n < totalOps; n++) {
+            checksum += JOhm.getId(user);
+        }
+        timer.end();
+        long cachedElapsed = timer.elapsed();
+
+        printCost("getIdByFieldScan", totalOps, scanElapsed);
+        printCost("getIdByCachedAccessor", totalOps, cachedElapsed);
+        assertTrue(checksum > 0);
+    }
+
+    /**
+     * The per-call declared field scan getId used to do before the id accessor
+     * was cached in ModelMetadata.
+     */
+    private static Long scanForId(final Object model) throws Exception {
+        for (Field field : model.getClass().getDeclaredFields()) {
+            field.setAccessible(true);
+            if (field.isAnnotationPresent(Id.class)) {
+                field.getAnnotations();
+                return (Long) field.get(model);
+            }
+        }
+        return null;
+    }
+
+    private void printCost(String test, int totalOps, long elapsed) {
+        StringBuilder stats = new StringBuilder();
+        stats.append("[").append(test).append("]");
+        stats.append(" totalOps=").append(totalOps);
+        stats.append(", elapsed=").append(elapsed).append(" ms");
+        stats.append(", perCall=").append((elapsed * 1000000L) / totalOps)
+                .append(" ns");
+        System.out.println(stats);
+    }
+}
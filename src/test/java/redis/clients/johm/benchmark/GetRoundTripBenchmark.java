@@ -0,0 +1,62 @@
+package redis.clients.johm.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import redis.clients.johm.JOhm;
+import redis.clients.johm.models.Country;
+import redis.clients.johm.models.Item;
+import redis.clients.johm.models.User;
+
+/**
+ * Counts the round trips of getting models with a reference and a filled
+ * array.
+ */
+public class GetRoundTripBenchmark extends JOhmBenchmarkTestBase {
+    private CountingJedisPool countingPool;
+
+    @Override
+    protected void startJedisEngine() {
+        countingPool = new CountingJedisPool();
+        jedisPool = countingPool;
+        JOhm.setPool(jedisPool);
+        purgeRedis();
+    }
+
+    @Test
+    public void getWithArray() {
+        Country country = new Country();
+        country.setName("Argentina");
+        JOhm.save(country);
+        Item[] purchases = new Item[3];
+        for (int n = 0; n < purchases.length; n++) {
+            purchases[n] = new Item();
+            purchases[n].setName("item" + n);
+            JOhm.save(purchases[n]);
+        }
+        int models = 100;
+        List<Long> ids = new ArrayList<Long>(models);
+        for (int n = 0; n < models; n++) {
+            User user = new User();
+            user.setName("foo" + n);
+            user.setCountry(country);
+            user.setThreeLatestPurchases(purchases);
+            JOhm.save(user);
+            ids.add(user.getId());
+        }
+
+        int totalOps = 10000;
+        long roundTrips = countingPool.getRoundTrips();
+        long commands = countingPool.commandsProcessed();
+        timer.begin();
+        for (int n = 0; n < totalOps; n++) {
+            JOhm.get(User.class, ids.get(n % models));
+        }
+        timer.end();
+        printRoundTrips("getWithArray", countingPool.getRoundTrips()
+                - roundTrips, countingPool.commandsProcessed() - commands);
+        printStats("getWithArray", totalOps, 1, timer.elapsed());
+    }
+}
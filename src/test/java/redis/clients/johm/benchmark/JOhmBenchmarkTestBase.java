@@ -1,5 +1,7 @@
 package redis.clients.johm.benchmark;
 
+import java.lang.management.ManagementFactory;
+
 import redis.clients.johm.JOhmTestBase;
 
 class JOhmBenchmarkTestBase extends JOhmTestBase {
@@ -16,4 +18,38 @@ class JOhmBenchmarkTestBase extends JOhmTestBase {
                         " ops");
         System.out.println(stats);
     }
+
+    protected void printRoundTrips(String test, long roundTrips, long commands) {
+        StringBuilder stats = new StringBuilder();
+        stats.append("[").append(test).append("]");
+        stats.append(" roundTrips=").append(roundTrips);
+        stats.append(", commands=").append(commands);
+        System.out.println(stats);
+    }
+
+    protected void printAllocation(String test, long bytes, int totalOps) {
+        StringBuilder stats = new StringBuilder();
+        stats.append("[").append(test).append("]");
+        if (bytes < 0) {
+            stats.append(" allocation=unavailable");
+        } else {
+            stats.append(" bytesPerOp=").append(bytes / totalOps);
+        }
+        System.out.println(stats);
+    }
+
+    /**
+     * The bytes allocated by the calling thread so far, or -1 if the JVM does
+     * not tell.
+     */
+    protected long allocatedBytes() {
+        try {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                    .getThreadMXBean();
+            return threads.getThreadAllocatedBytes(Thread.currentThread()
+                    .getId());
+        } catch (Throwable e) {
+            return -1;
+        }
+    }
 }
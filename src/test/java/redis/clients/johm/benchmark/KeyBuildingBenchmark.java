@@ -0,0 +1,77 @@
+package redis.clients.johm.benchmark;
+
+import org.junit.Test;
+
+import redis.clients.johm.JOhm;
+import redis.clients.johm.Nest;
+import redis.clients.johm.models.Item;
+import redis.clients.johm.models.User;
+
+/**
+ * Reports what building keys allocates per operation, alone and as part of
+ * collection commands.
+ */
+public class KeyBuildingBenchmark extends JOhmBenchmarkTestBase {
+    private int sink;
+
+    @Test
+    public void buildKeys() {
+        final int totalOps = 1000000;
+        measure("modelKey", totalOps, new Runnable() {
+            public void run() {
+                for (int n = 0; n < totalOps; n++) {
+                    sink += new Nest<User>(User.class).cat(n).key().length();
+                }
+            }
+        });
+        final Nest<User> nest = new Nest<User>(User.class);
+        measure("fieldKey", totalOps, new Runnable() {
+            public void run() {
+                for (int n = 0; n < totalOps; n++) {
+                    sink += nest.cat(n).cat("likes").key().length();
+                }
+            }
+        });
+        final Nest<User> forked = nest.cat(1).cat("likes").fork();
+        measure("forkedKey", totalOps, new Runnable() {
+            public void run() {
+                for (int n = 0; n < totalOps; n++) {
+                    sink += forked.key().length();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void collectionCommands() {
+        Item item = new Item();
+        item.setName("foo");
+        JOhm.save(item);
+        final User user = new User();
+        user.setName("foo");
+        JOhm.save(user);
+        user.getLikes().add(item);
+
+        final int totalOps = 10000;
+        measure("listSize", totalOps, new Runnable() {
+            public void run() {
+                for (int n = 0; n < totalOps; n++) {
+                    sink += user.getLikes().size();
+                }
+            }
+        });
+    }
+
+    private void measure(String test, int totalOps, Runnable loop) {
+        // warm up
+        loop.run();
+        long allocated = allocatedBytes();
+        timer.begin();
+        loop.run();
+        timer.end();
+        long bytes = allocatedBytes();
+        printAllocation(test, allocated < 0 ? -1 : bytes - allocated,
+                totalOps);
+        printStats(test, totalOps, 1, Math.max(1, timer.elapsed()));
+    }
+}
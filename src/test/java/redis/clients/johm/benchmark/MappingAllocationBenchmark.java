@@ -0,0 +1,53 @@
+package redis.clients.johm.benchmark;
+
+import org.junit.Test;
+
+import redis.clients.johm.JOhm;
+import redis.clients.johm.models.User;
+
+/**
+ * Reports what mapping a model to and from Redis allocates per get and per
+ * save.
+ */
+public class MappingAllocationBenchmark extends JOhmBenchmarkTestBase {
+    @Test
+    public void getAndSave() {
+        final User user = new User();
+        user.setName("foo");
+        user.setRoom("vroom");
+        user.setAge(33);
+        user.setSalary(1234.5f);
+        user.setInitial('f');
+        JOhm.save(user);
+
+        final int totalOps = 20000;
+        measure("get", totalOps, new Runnable() {
+            public void run() {
+                for (int n = 0; n < totalOps; n++) {
+                    JOhm.get(User.class, user.getId());
+                }
+            }
+        });
+        measure("save", totalOps, new Runnable() {
+            public void run() {
+                for (int n = 0; n < totalOps; n++) {
+                    user.setAge(n);
+                    JOhm.save(user);
+                }
+            }
+        });
+    }
+
+    private void measure(String test, int totalOps, Runnable loop) {
+        // warm up
+        loop.run();
+        long allocated = allocatedBytes();
+        timer.begin();
+        loop.run();
+        timer.end();
+        long bytes = allocatedBytes();
+        printAllocation(test, allocated < 0 ? -1 : bytes - allocated,
+                totalOps);
+        printStats(test, totalOps, 1, timer.elapsed());
+    }
+}
@@ -0,0 +1,62 @@
+package redis.clients.johm.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import redis.clients.johm.JOhm;
+import redis.clients.johm.models.User;
+
+/**
+ * Compares importing models one save at a time with importing them in bulk.
+ */
+public class SaveAllBenchmark extends JOhmBenchmarkTestBase {
+    private CountingJedisPool countingPool;
+
+    @Override
+    protected void startJedisEngine() {
+        countingPool = new CountingJedisPool();
+        jedisPool = countingPool;
+        JOhm.setPool(jedisPool);
+        purgeRedis();
+    }
+
+    @Test
+    public void importModels() {
+        int totalOps = 10000;
+
+        List<User> users = newUsers(totalOps);
+        long roundTrips = countingPool.getRoundTrips();
+        long commands = countingPool.commandsProcessed();
+        timer.begin();
+        for (User user : users) {
+            JOhm.save(user);
+        }
+        timer.end();
+        printRoundTrips("importOneByOne", countingPool.getRoundTrips()
+                - roundTrips, countingPool.commandsProcessed() - commands);
+        printStats("importOneByOne", totalOps, 1, timer.elapsed());
+
+        users = newUsers(totalOps);
+        roundTrips = countingPool.getRoundTrips();
+        commands = countingPool.commandsProcessed();
+        timer.begin();
+        JOhm.saveAll(users);
+        timer.end();
+        printRoundTrips("importSaveAll", countingPool.getRoundTrips()
+                - roundTrips, countingPool.commandsProcessed() - commands);
+        printStats("importSaveAll", totalOps, 1, timer.elapsed());
+    }
+
+    private static List<User> newUsers(int count) {
+        List<User> users = new ArrayList<User>(count);
+        for (int n = 0; n < count; n++) {
+            User user = new User();
+            user.setName("foo" + n);
+            user.setAge(n % 100);
+            users.add(user);
+        }
+        return users;
+    }
+}
@@ -0,0 +1,104 @@
+package redis.clients.johm.benchmark;
+
+import org.junit.Test;
+
+import redis.clients.johm.JOhm;
+import redis.clients.johm.models.Country;
+import redis.clients.johm.models.Item;
+import redis.clients.johm.models.User;
+
+/**
+ * Counts what a single save costs on the wire.
+ */
+public class SaveRoundTripBenchmark extends JOhmBenchmarkTestBase {
+    private CountingJedisPool countingPool;
+
+    @Override
+    protected void startJedisEngine() {
+        countingPool = new CountingJedisPool();
+        jedisPool = countingPool;
+        JOhm.setPool(jedisPool);
+        purgeRedis();
+    }
+
+    @Test
+    public void roundTripsPerSave() {
+        Country country = new Country();
+        country.setName("Argentina");
+        JOhm.save(country);
+        Item item0 = new Item();
+        item0.setName("Foo0");
+        JOhm.save(item0);
+        Item item1 = new Item();
+        item1.setName("Foo1");
+        JOhm.save(item1);
+
+        User user = new User();
+        user.setName("foo");
+        user.setAge(33);
+        user.setSalary(1.5f);
+        user.setInitial('f');
+        user.setCountry(country);
+        user.setThreeLatestPurchases(new Item[] { item0, item1 });
+
+        long roundTrips = countingPool.getRoundTrips();
+        long commands = countingPool.commandsProcessed();
+        JOhm.save(user);
+        printRoundTrips("saveNewModel", countingPool.getRoundTrips()
+                - roundTrips, countingPool.commandsProcessed() - commands);
+
+        user.setAge(34);
+        roundTrips = countingPool.getRoundTrips();
+        commands = countingPool.commandsProcessed();
+        JOhm.save(user);
+        printRoundTrips("saveUpdatedModel", countingPool.getRoundTrips()
+                - roundTrips, countingPool.commandsProcessed() - commands);
+
+        int totalOps = 5000;
+        timer.begin();
+        for (int n = 0; n < totalOps; n++) {
+            user.setAge(n);
+            JOhm.save(user);
+        }
+        timer.end();
+        printStats("saveUpdatedModel", totalOps, 1, timer.elapsed());
+
+        JOhm.setChangeTracking(true);
+        try {
+            JOhm.save(user);
+            user.setAge(35);
+            roundTrips = countingPool.getRoundTrips();
+            commands = countingPool.commandsProcessed();
+            JOhm.save(user);
+            printRoundTrips("saveTrackedModel", countingPool.getRoundTrips()
+                    - roundTrips, countingPool.commandsProcessed() - commands);
+
+            timer.begin();
+            for (int n = 0; n < totalOps; n++) {
+                user.setAge(n);
+                JOhm.save(user);
+            }
+            timer.end();
+            printStats("saveTrackedModel", totalOps, 1, timer.elapsed());
+        } finally {
+            JOhm.setChangeTracking(false);
+        }
+    }
+
+    @Test
+    public void roundTripsPerInsert() {
+        int totalOps = 5000;
+        long roundTrips = countingPool.getRoundTrips();
+        long commands = countingPool.commandsProcessed();
+        timer.begin();
+        for (int n = 0; n < totalOps; n++) {
+            Item item = new Item();
+            item.setName("Foo" + n);
+            JOhm.save(item);
+        }
+        timer.end();
+        printRoundTrips("insertModels", countingPool.getRoundTrips()
+                - roundTrips, countingPool.commandsProcessed() - commands);
+        printStats("insertModels", totalOps, 1, timer.elapsed());
+    }
+}
@@ -0,0 +1,80 @@
+package redis.clients.johm.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.pool.impl.GenericObjectPool.Config;
+import org.junit.Test;
+
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Protocol;
+import redis.clients.johm.JOhm;
+import redis.clients.johm.Session;
+import redis.clients.johm.models.Country;
+import redis.clients.johm.models.Item;
+import redis.clients.johm.models.User;
+
+/**
+ * Measures how often threads contending for a small pool borrow connections,
+ * and how long they wait for them.
+ */
+public class SessionBenchmark extends JOhmBenchmarkTestBase {
+    private static final int THREADS = 8;
+
+    @Override
+    protected void startJedisEngine() {
+        Config config = new Config();
+        config.maxActive = THREADS / 2;
+        jedisPool = new JedisPool(config, "localhost", Protocol.DEFAULT_PORT,
+                2000);
+        JOhm.setPool(jedisPool);
+        purgeRedis();
+    }
+
+    @Test
+    public void contendedSaveGet() throws InterruptedException {
+        final Country country = new Country();
+        country.setName("Argentina");
+        JOhm.save(country);
+        final Item[] purchases = new Item[3];
+        for (int n = 0; n < purchases.length; n++) {
+            purchases[n] = new Item();
+            purchases[n].setName("item" + n);
+            JOhm.save(purchases[n]);
+        }
+
+        final int opsPerThread = 2000;
+        List<Thread> threads = new ArrayList<Thread>(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    for (int n = 0; n < opsPerThread; n++) {
+                        User user = new User();
+                        user.setName("foo" + n);
+                        user.setCountry(country);
+                        user.setThreeLatestPurchases(purchases);
+                        JOhm.save(user);
+                        JOhm.get(User.class, user.getId());
+                    }
+                }
+            }));
+        }
+        int totalOps = THREADS * opsPerThread;
+        long borrows = Session.getBorrows();
+        long waited = Session.getPoolWaitNanos();
+        timer.begin();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        timer.end();
+        System.out.println("[contendedSaveGet] borrowsPerOp="
+                + (double) (Session.getBorrows() - borrows) / (2 * totalOps)
+                + ", poolWaitMicrosPerOp="
+                + (Session.getPoolWaitNanos() - waited) / 1000
+                / (2 * totalOps));
+        printStats("contendedSaveGet", totalOps, 2, timer.elapsed());
+    }
+}
@@ -0,0 +1,21 @@
+package redis.clients.johm.models;
+
+import java.util.Map;
+
+import redis.clients.johm.ModelMapper;
+
+public class Country_JOhmMapper implements ModelMapper<Country> {
+    public Country newInstance() {
+        return new Country();
+    }
+
+    public void toHash(Country model, Map<String, String> hash) {
+        if (model.getName() != null) {
+            hash.put("name", model.getName());
+        }
+    }
+
+    public void fromHash(Map<String, String> hash, Country model) {
+        model.setName(hash.get("name"));
+    }
+}
@@ -0,0 +1,36 @@
+package redis.clients.johm.models;
+
+import redis.clients.johm.Attribute;
+import redis.clients.johm.Id;
+import redis.clients.johm.Model;
+import redis.clients.johm.Reference;
+
+@Model
+public class Person {
+    @Id
+    private Long id;
+    @Attribute
+    private String name;
+    @Reference
+    private Person partner;
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Person getPartner() {
+        return partner;
+    }
+
+    public void setPartner(Person partner) {
+        this.partner = partner;
+    }
+}
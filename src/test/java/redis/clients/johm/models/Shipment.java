@@ -0,0 +1,68 @@
+package redis.clients.johm.models;
+
+import java.util.List;
+import java.util.Map;
+
+import redis.clients.johm.Attribute;
+import redis.clients.johm.CollectionList;
+import redis.clients.johm.CollectionMap;
+import redis.clients.johm.Id;
+import redis.clients.johm.Indexed;
+import redis.clients.johm.LazyReference;
+import redis.clients.johm.Model;
+import redis.clients.johm.Reference;
+
+@Model
+public class Shipment {
+    @Id
+    private Long id;
+    @Attribute
+    private String name;
+    @Reference
+    @Indexed
+    private LazyReference<Country> destination;
+    @Reference
+    private LazyReference<Shipment> previous;
+    @CollectionList(of = Shipment.class)
+    private List<Shipment> legs;
+    @CollectionMap(key = Shipment.class, value = Integer.class)
+    private Map<Shipment, Integer> transitDays;
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public LazyReference<Country> getDestination() {
+        return destination;
+    }
+
+    public void setDestination(Country destination) {
+        this.destination = destination == null ? null
+                : new LazyReference<Country>(destination);
+    }
+
+    public List<Shipment> getLegs() {
+        return legs;
+    }
+
+    public Map<Shipment, Integer> getTransitDays() {
+        return transitDays;
+    }
+
+    public LazyReference<Shipment> getPrevious() {
+        return previous;
+    }
+
+    public void setPrevious(Shipment previous) {
+        this.previous = previous == null ? null
+                : new LazyReference<Shipment>(previous);
+    }
+}